@@ -0,0 +1,670 @@
+package com.jslib.wood.tasks;
+
+import static java.lang.String.format;
+import static js.util.Strings.concat;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.xml.sax.SAXException;
+
+import com.jslib.docore.IFiles;
+import com.jslib.docore.IHttpRequest;
+import com.jslib.docore.repo.RepositoryCoordinates;
+import com.jslib.dospi.IParameters;
+import com.jslib.dospi.IShell;
+import com.jslib.dospi.ReturnCode;
+import com.jslib.dospi.TaskAbortException;
+import com.jslib.wood.tasks.util.CacheValidators;
+import com.jslib.wood.tasks.util.CompoLock;
+import com.jslib.wood.tasks.util.CompoManifest;
+import com.jslib.wood.tasks.util.CompoRepository;
+import com.jslib.wood.tasks.util.ContentStore;
+import com.jslib.wood.tasks.util.DependencyResolver;
+import com.jslib.wood.tasks.util.LayoutScanner;
+import com.jslib.wood.tasks.util.OperatorsNaming;
+import com.jslib.wood.tasks.util.ProjectIndex;
+import com.jslib.wood.tasks.util.ProjectModel;
+
+import js.dom.Document;
+import js.dom.DocumentBuilder;
+import js.dom.Element;
+import js.log.Log;
+import js.log.LogFactory;
+import js.util.Classes;
+import js.util.Files;
+import js.wood.WOOD;
+import js.wood.WoodException;
+
+/**
+ * Base for component import tasks. Import resolves all transitive dependencies of requested components in a single
+ * session, before changing project, then copies components into project in dependencies order, every component on the
+ * project path provided by subclass.
+ */
+public abstract class BaseImportComponent extends WoodTask {
+	private static final Log log = LogFactory.getLog(BaseImportComponent.class);
+
+	private final IShell shell;
+	private final IFiles files;
+	private final IHttpRequest httpRequest;
+	private final HttpClientBuilder clientBuilder;
+	private final ProjectModel model;
+
+	private CompoRepository repository;
+	private CompoLock lock;
+	/** Project index is loaded only if a component is not found on lockfile, see {@link #projectCompoDir(RepositoryCoordinates)}. */
+	private ProjectIndex index;
+	/** Project directories of the components imported by current session, mapped by coordinates key. */
+	private final Map<String, Path> imported = new HashMap<>();
+	/** Locked components upgraded in place by current session, mapped by coordinates key of the new version. */
+	private final Map<String, CompoLock.Entry> upgrades = new HashMap<>();
+	/** Overwrite local changes on upgraded components. */
+	private boolean force;
+
+	protected BaseImportComponent(IShell shell, IFiles files, IHttpRequest httpRequest, HttpClientBuilder clientBuilder, ProjectModel model) {
+		super();
+		log.trace("BaseImportComponent(shell, files, httpRequest, clientBuilder, model)");
+		this.shell = shell;
+		this.files = files;
+		this.httpRequest = httpRequest;
+		this.clientBuilder = clientBuilder;
+		this.model = model;
+	}
+
+	@Override
+	public IParameters parameters() {
+		log.trace("parameters()");
+		IParameters parameters = super.parameters();
+		parameters.define("offline", Boolean.class, context.get("repository.offline", boolean.class, "false"));
+		return parameters;
+	}
+
+	/**
+	 * Get project path for a component about to be imported. Invoked in dependencies order, after all components were
+	 * resolved and before the component is copied into project.
+	 *
+	 * @param coordinates coordinates of the component to import.
+	 * @return project relative component path.
+	 * @throws Exception if path cannot be provided.
+	 */
+	protected abstract String localPath(RepositoryCoordinates coordinates) throws Exception;
+
+	/**
+	 * Hook invoked after all components were resolved and before project is changed. Default implementation does nothing.
+	 *
+	 * @param components components to import, in dependencies order.
+	 * @throws Exception if import should be aborted.
+	 */
+	protected void beforeImport(List<RepositoryCoordinates> components) throws Exception {
+	}
+
+	protected IShell getShell() {
+		return shell;
+	}
+
+	protected IFiles getFiles() {
+		return files;
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Import components and all their transitive dependencies, skipping components already on project. Dependencies are
+	 * resolved and downloaded in a single session, sharing repository connections, then components are copied into project
+	 * in dependencies order. Imported components are recorded on project lockfile, see {@link CompoLock}, used to find
+	 * components already on project without scanning it. Import is aborted if another version of a root component is already
+	 * on project lockfile; changing version is the job of {@link #upgradeComponent(RepositoryCoordinates, boolean, boolean)}.
+	 *
+	 * @param roots coordinates of the components to import,
+	 * @param offline if true, resolve strictly from local repository.
+	 * @return task return code.
+	 * @throws TaskAbortException if another version of a root component is already imported.
+	 * @throws Exception if import fails.
+	 */
+	protected ReturnCode importComponents(Collection<RepositoryCoordinates> roots, boolean offline) throws Exception {
+		lock = CompoLock.load(files.getProjectDir());
+		index = null;
+		upgrades.clear();
+		for (RepositoryCoordinates root : roots) {
+			Path projectCompoDir = projectCompoDir(root);
+			if (projectCompoDir != null) {
+				log.info("Component %s already loaded on %s.", root, compoPath(projectCompoDir));
+				continue;
+			}
+			CompoLock.Entry entry = lock.find(root.getGroupId(), root.getArtifactId());
+			if (entry != null && !files.exists(files.getProjectDir().resolve(entry.getPath()))) {
+				// component directory removed outside tasks; entry is stale and is replaced by this import
+				log.info("Remove stale lock entry %s from %s.", entry.getCoordinates(), entry.getPath());
+				lock.remove(entry);
+				entry = null;
+			}
+			if (entry != null) {
+				throw new TaskAbortException("Component %s already loaded on %s. Use 'upgrade compo' to change its version.", entry.getCoordinates(), entry.getPath());
+			}
+		}
+		return importResolvedComponents(roots, offline);
+	}
+
+	/**
+	 * Upgrade component imported on project to another version, in place, keeping its project path. New version and its
+	 * missing dependencies are resolved as for import; dependencies are imported, see {@link #localPath(RepositoryCoordinates)},
+	 * and component files are diffed against project lockfile hashes so that only changed files are written, see
+	 * {@link #upgradeResolvedComponent(RepositoryCoordinates, CompoLock.Entry)}.
+	 * <p>
+	 * Component should be on project lockfile. Upgrade is aborted if component has local changes, unless forced.
+	 *
+	 * @param coordinates coordinates of the new component version,
+	 * @param offline if true, resolve strictly from local repository,
+	 * @param force overwrite local changes.
+	 * @return task return code.
+	 * @throws Exception if upgrade fails.
+	 */
+	protected ReturnCode upgradeComponent(RepositoryCoordinates coordinates, boolean offline, boolean force) throws Exception {
+		Path projectDir = files.getProjectDir();
+		lock = CompoLock.load(projectDir);
+		index = null;
+		upgrades.clear();
+
+		CompoLock.Entry entry = lock.find(coordinates.getGroupId(), coordinates.getArtifactId());
+		if (entry == null) {
+			throw new TaskAbortException("Component %s:%s not found on project lockfile. Only imported components can be upgraded.", coordinates.getGroupId(), coordinates.getArtifactId());
+		}
+		if (entry.getCoordinates().equals(key(coordinates))) {
+			log.info("Component %s already loaded on %s.", coordinates, entry.getPath());
+			return ReturnCode.SUCCESS;
+		}
+		if (!files.exists(projectDir.resolve(entry.getPath()))) {
+			throw new TaskAbortException("Component %s missing from %s. Import it again.", entry.getCoordinates(), entry.getPath());
+		}
+		List<String> modified = new ArrayList<>();
+		entry.getChanges(projectDir).forEach((fileName, change) -> {
+			if (CompoLock.MODIFIED.equals(change)) {
+				modified.add(fileName);
+			}
+		});
+		if (!modified.isEmpty() && !force) {
+			throw new TaskAbortException("Component %s has local changes on %s. Use 'force' option to overwrite them.", entry.getCoordinates(), String.join(", ", modified));
+		}
+
+		upgrades.put(key(coordinates), entry);
+		this.force = force;
+		return importResolvedComponents(Collections.singletonList(coordinates), offline);
+	}
+
+	private ReturnCode importResolvedComponents(Collection<RepositoryCoordinates> roots, boolean offline) throws Exception {
+		imported.clear();
+		try (CompoRepository repository = new CompoRepository(shell, files, httpRequest, clientBuilder, context)) {
+			this.repository = repository;
+			repository.setOffline(offline);
+
+			// resolve all transitive dependencies before changing project, then import dependencies first
+			int threads = context.get("repository.download.threads", int.class, "8");
+			DependencyResolver resolver = new DependencyResolver(repository::getCompoDependencies, this::isInstalled, threads);
+			List<RepositoryCoordinates> components;
+			try {
+				components = resolver.resolve(roots);
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			if (!repository.getMissing().isEmpty()) {
+				throw new TaskAbortException("Offline mode. Components missing from local repository: %s. Use 'prefetch compos' while online.", String.join(", ", repository.getMissing()));
+			}
+
+			beforeImport(components);
+			try {
+				for (RepositoryCoordinates coordinates : components) {
+					CompoLock.Entry entry = upgrades.get(key(coordinates));
+					if (entry != null) {
+						upgradeResolvedComponent(coordinates, entry);
+					} else {
+						importResolvedComponent(coordinates);
+					}
+				}
+			} finally {
+				lock.save();
+				// update project index so that components imported by this session are visible to next tasks
+				model.refresh();
+				index = null;
+			}
+		}
+		return ReturnCode.SUCCESS;
+	}
+
+	/**
+	 * Import component already resolved: component is on local repository and all its dependencies are already imported.
+	 *
+	 * @param compoCoordinates component coordinates.
+	 * @throws Exception if component import fails.
+	 */
+	private void importResolvedComponent(RepositoryCoordinates compoCoordinates) throws Exception {
+		log.info("Import %s.", compoCoordinates);
+
+		Path projectDir = files.getProjectDir();
+		Path projectCompoDir = projectDir.resolve(localPath(compoCoordinates));
+
+		copyComponent(compoCoordinates, projectCompoDir);
+		// components imported by this session are not on project index until refreshed; dependent components look them up here
+		imported.put(key(compoCoordinates), projectCompoDir);
+
+		Path descriptorFile = projectCompoDir.resolve(files.getFileName(projectCompoDir) + ".xml");
+		CompoDescriptor compoDescriptor = new CompoDescriptor(files, descriptorFile);
+		updateDescriptor(compoDescriptor);
+		compoDescriptor.save();
+		lock.put(compoCoordinates, projectDir, projectCompoDir);
+	}
+
+	/**
+	 * Upgrade component in place, on the project path of the locked version, writing only the files that changed. Every
+	 * file of the new version is prepared as it would be imported - layouts rewritten and descriptor updated into staging
+	 * files, other files just hashed - and its hash compared with the one recorded on lockfile for the same file name. A
+	 * file is written only if hashes differ or project file is not the locked one; files missing from new version are
+	 * removed. Files added on project after import are preserved, unless new version has a file with the same name and
+	 * upgrade is forced.
+	 *
+	 * @param compoCoordinates coordinates of the new component version, already on local repository,
+	 * @param entry lockfile entry of the imported component.
+	 * @throws Exception if component upgrade fails.
+	 */
+	private void upgradeResolvedComponent(RepositoryCoordinates compoCoordinates, CompoLock.Entry entry) throws Exception {
+		log.info("Upgrade %s to %s.", entry.getCoordinates(), compoCoordinates);
+
+		Path projectDir = files.getProjectDir();
+		Path projectCompoDir = projectDir.resolve(entry.getPath());
+		imported.put(key(compoCoordinates), projectCompoDir);
+		Map<String, String> changes = entry.getChanges(projectDir);
+
+		Path repositoryCompoDir = repository.getCompoDir(compoCoordinates);
+		CacheValidators validators = CacheValidators.load(repositoryCompoDir);
+		OperatorsNaming naming = OperatorsNaming.of(context);
+		String descriptorName = files.getFileName(projectCompoDir) + ".xml";
+
+		// new version files hash, staging files for layouts and descriptor and repository files for the rest
+		Map<String, String> hashes = new TreeMap<>();
+		Map<String, Path> stagedFiles = new HashMap<>();
+		Map<String, Path> repositoryFiles = new HashMap<>();
+		try {
+			for (Path file : files.listFiles(repositoryCompoDir, file -> !files.getFileName(file).startsWith("."))) {
+				String fileName = projectFileName(file, compoCoordinates, projectCompoDir);
+				Path stagedFile = projectCompoDir.resolve("~" + fileName);
+				if (fileName.endsWith(".htm")) {
+					stagedFiles.put(fileName, stagedFile);
+					copyLayout(file, stagedFile, naming);
+				} else if (fileName.equals(descriptorName)) {
+					stagedFiles.put(fileName, stagedFile);
+					CompoDescriptor compoDescriptor = new CompoDescriptor(files, file, projectCompoDir.resolve(fileName));
+					updateDescriptor(compoDescriptor);
+					compoDescriptor.save(stagedFile);
+				} else {
+					repositoryFiles.put(fileName, file);
+					CacheValidators.Validator validator = validators.get(files.getFileName(file));
+					hashes.put(fileName, validator != null && validator.getSha256() != null ? validator.getSha256() : CompoManifest.sha256(file));
+					continue;
+				}
+				hashes.put(fileName, CompoManifest.sha256(stagedFile));
+			}
+
+			Map<String, String> lockedFiles = entry.getFiles();
+			List<String> changedFiles = new ArrayList<>();
+			for (Map.Entry<String, String> hash : hashes.entrySet()) {
+				String fileName = hash.getKey();
+				if (hash.getValue().equals(lockedFiles.get(fileName)) && !changes.containsKey(fileName)) {
+					continue;
+				}
+				if (CompoLock.ADDED.equals(changes.get(fileName)) && !force) {
+					throw new TaskAbortException("Component %s has local file %s also present on %s. Use 'force' option to overwrite it.", entry.getCoordinates(), fileName, compoCoordinates);
+				}
+				changedFiles.add(fileName);
+			}
+
+			for (String fileName : changedFiles) {
+				log.info("Write file %s", fileName);
+				Path projectFile = projectCompoDir.resolve(fileName);
+				Path stagedFile = stagedFiles.remove(fileName);
+				if (stagedFile != null) {
+					files.deleteIfExists(projectFile);
+					files.move(stagedFile, projectFile);
+				} else {
+					repository.getStore().materialize(repositoryFiles.get(fileName), hashes.get(fileName), projectFile, fileName.endsWith(".xml"));
+				}
+			}
+			int removedFiles = 0;
+			for (String fileName : lockedFiles.keySet()) {
+				if (!hashes.containsKey(fileName)) {
+					log.info("Remove file %s", fileName);
+					files.deleteIfExists(projectCompoDir.resolve(fileName));
+					++removedFiles;
+				}
+			}
+			log.info("Component %s upgraded: %d files written, %d removed, %d unchanged.", compoCoordinates, changedFiles.size(), removedFiles, hashes.size() - changedFiles.size());
+		} finally {
+			for (Path stagedFile : stagedFiles.values()) {
+				files.deleteIfExists(stagedFile);
+			}
+		}
+
+		lock.remove(entry);
+		lock.put(compoCoordinates, entry.getPath(), hashes);
+	}
+
+	/**
+	 * Update descriptor of a component copied into project: add component script with project paths of dependencies
+	 * scripts and remove repository dependencies. Dependencies should be already on project.
+	 *
+	 * @param compoDescriptor component descriptor.
+	 * @throws IOException if dependencies lookup fails.
+	 */
+	private void updateDescriptor(CompoDescriptor compoDescriptor) throws IOException {
+		compoDescriptor.createScripts();
+		for (RepositoryCoordinates coordinates : compoDescriptor.getDependencies()) {
+			Path projectCompoPath = projectCompoDir(coordinates);
+			Path scriptFile = projectCompoPath != null ? compoFile(projectCompoPath, "js") : null;
+			compoDescriptor.addScriptDependency(scriptFile);
+		}
+		compoDescriptor.removeDependencies();
+	}
+
+	/**
+	 * Copy repository component identified by its coordinates to project component directory. While importing into project, it
+	 * is acceptable that source repository component to be renamed. If this is the case, this method takes care to rename
+	 * layout, style, script and descriptor files.
+	 * <p>
+	 * Files are materialised from local repository content store, see {@link ContentStore}, as copies or, if
+	 * <code>repository.import.links</code> is enabled, as hard links; layout and descriptor files are always copied since
+	 * they are changed on import. WOOD operators from layout files are updated while
+	 * copying, see {@link #copyLayout(Path, Path, OperatorsNaming)}.
+	 * <p>
+	 * Warning: this method remove all target component directory files.
+	 * 
+	 * @param compoCoordinates coordinates for repository component,
+	 * @param projectCompoDir project component directory.
+	 * @throws IOException if copy operation fails.
+	 */
+	void copyComponent(RepositoryCoordinates compoCoordinates, Path projectCompoDir) throws IOException {
+		if (!files.exists(projectCompoDir)) {
+			files.createDirectory(projectCompoDir);
+		}
+		files.cleanDirectory(projectCompoDir);
+
+		Path repositoryCompoDir = repository.getCompoDir(compoCoordinates);
+		CacheValidators validators = CacheValidators.load(repositoryCompoDir);
+		OperatorsNaming naming = OperatorsNaming.of(context);
+		files.walkFileTree(repositoryCompoDir, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				// skip local repository cache files, e.g. validators file
+				if (files.getFileName(file).startsWith(".")) {
+					return FileVisitResult.CONTINUE;
+				}
+				String fileName = projectFileName(file, compoCoordinates, projectCompoDir);
+				log.info("Copy file %s", file);
+				Path projectFile = projectCompoDir.resolve(fileName);
+				if (fileName.endsWith(".htm")) {
+					copyLayout(file, projectFile, naming);
+					return FileVisitResult.CONTINUE;
+				}
+				CacheValidators.Validator validator = validators.get(files.getFileName(file));
+				// descriptor is changed after import and should not be linked to repository content store
+				repository.getStore().materialize(file, validator != null ? validator.getSha256() : null, projectFile, fileName.endsWith(".xml"));
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Copy layout file from repository to project, updating WOOD operators while copying. Layout is streamed with
+	 * {@link LayoutScanner}, read once and written once, with no document tree. Keep in mind that on repository component
+	 * operators always use <code>XMLNS</code> naming convention; operators are renamed accordingly project naming strategy
+	 * and, if project does not use <code>XMLNS</code>, WOOD namespace declaration is removed. Everything else from layout
+	 * is preserved exactly.
+	 * <p>
+	 * Also, if operator value is a reference to a dependency component, find it on project file system and resolve operator
+	 * path value. On repository, component references are always represented as component coordinates.
+	 * 
+	 * @param layoutFile repository layout file,
+	 * @param projectFile project layout file,
+	 * @param naming project operators naming strategy.
+	 * @throws IOException if layout file reading or writing fails or a dependency is not on project.
+	 */
+	void copyLayout(Path layoutFile, Path projectFile, OperatorsNaming naming) throws IOException {
+		Path projectDir = files.getProjectDir();
+		try (Reader reader = files.getReader(layoutFile); Writer writer = files.getWriter(projectFile)) {
+			LayoutScanner scanner = new LayoutScanner(reader, writer);
+			scanner.scan((tag, attributes) -> {
+				for (LayoutScanner.Attribute attribute : attributes) {
+					if (naming != OperatorsNaming.XMLNS && attribute.getName().startsWith("xmlns:") && WOOD.NS.equals(attribute.getValue())) {
+						attribute.remove();
+						continue;
+					}
+					String operator = OperatorsNaming.XMLNS.operator(attribute.getName(), scanner.getWoodPrefixes());
+					if (operator == null) {
+						continue;
+					}
+
+					// if value is a component coordinates for a dependency, resolve it to project component path
+					RepositoryCoordinates coordinates = RepositoryCoordinates.parse(attribute.getValue());
+					if (coordinates != null) {
+						Path dependencyDir = projectCompoDir(coordinates);
+						if (dependencyDir == null) {
+							throw new IOException(format("Missing dependency %s for layout file |%s|.", coordinates, layoutFile));
+						}
+						// WOOD component path always uses slash ('/') as separator and is always relative to project root
+						attribute.setValue(projectDir.relativize(dependencyDir).toString().replace('\\', '/'));
+					}
+
+					if (naming == OperatorsNaming.DATA_ATTR) {
+						attribute.setName("data-" + operator);
+					} else if (naming == OperatorsNaming.ATTR) {
+						attribute.setName(operator);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Get project file name for a repository component file. Ensure that original repository component files are renamed
+	 * using project component directory name; this applies to layout, style, script and descriptor files.
+	 *
+	 * @param file repository component file,
+	 * @param compoCoordinates repository component coordinates,
+	 * @param projectCompoDir project component directory.
+	 * @return project file name.
+	 */
+	String projectFileName(Path file, RepositoryCoordinates compoCoordinates, Path projectCompoDir) {
+		String fileName = files.getFileName(file);
+		if (Files.basename(fileName).equals(compoCoordinates.getArtifactId())) {
+			fileName = concat(files.getFileName(projectCompoDir), '.', Files.getExtension(fileName));
+		}
+		return fileName;
+	}
+
+	String compoPath(Path compoDir) {
+		Path projectDir = files.getProjectDir();
+		return projectDir.relativize(compoDir).toString().replace('\\', '/');
+	}
+
+	Path compoFile(Path compoDir, String extension) {
+		String compoName = files.getFileName(compoDir);
+		return compoDir.resolve(concat(compoName, '.', extension));
+	}
+
+	Path projectCompoDir(RepositoryCoordinates coordinates) throws IOException {
+		Path importedCompoDir = imported.get(key(coordinates));
+		if (importedCompoDir != null) {
+			return importedCompoDir;
+		}
+		CompoLock.Entry entry = lock.get(coordinates);
+		if (entry != null) {
+			Path lockedCompoDir = files.getProjectDir().resolve(entry.getPath());
+			if (files.exists(lockedCompoDir)) {
+				return lockedCompoDir;
+			}
+			// component moved or deleted after import; fall back to project index
+		}
+		if (index == null) {
+			index = model.getIndex();
+		}
+		ProjectIndex.Directory component = index.findComponent(coordinates);
+		return component != null ? files.getProjectDir().resolve(component.getPath()) : null;
+	}
+
+	/** Predicate for dependencies resolver; resolver does not accept checked exceptions. */
+	private boolean isInstalled(RepositoryCoordinates coordinates) {
+		// version about to be upgraded is not on project; avoid project index scan
+		if (upgrades.containsKey(key(coordinates))) {
+			return false;
+		}
+		try {
+			return projectCompoDir(coordinates) != null;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static String key(RepositoryCoordinates coordinates) {
+		return String.join(":", coordinates.getGroupId(), coordinates.getArtifactId(), coordinates.getVersion());
+	}
+
+	static URI URI(String server, String... paths) {
+		StringBuilder uri = new StringBuilder(server);
+		if (!uri.toString().endsWith("/")) {
+			uri.append('/');
+		}
+		for (String path : paths) {
+			uri.append(path.replace('.', '/'));
+			if (!path.endsWith("/")) {
+				uri.append('/');
+			}
+		}
+		return URI.create(uri.toString());
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	static class CompoDescriptor {
+		private static final DocumentBuilder documentBuilder = Classes.loadService(DocumentBuilder.class);
+
+		private final IFiles files;
+		private final Path descriptorFile;
+		private final Document document;
+		private final boolean hasDpendencies;
+
+		private Element scriptElement;
+
+		public CompoDescriptor(IFiles files, Path descriptorFile) throws IOException {
+			this(files, descriptorFile, descriptorFile);
+		}
+
+		/**
+		 * Load descriptor content from source file, usually a repository file, for a descriptor on given project path.
+		 *
+		 * @param files project file system,
+		 * @param sourceFile file to load descriptor content from,
+		 * @param descriptorFile project descriptor file, used for scripts paths and as default save target.
+		 * @throws IOException if source file is missing or cannot be parsed.
+		 */
+		public CompoDescriptor(IFiles files, Path sourceFile, Path descriptorFile) throws IOException {
+			if (!files.exists(sourceFile)) {
+				throw new WoodException("Missing component descriptor %s.", sourceFile);
+			}
+			this.files = files;
+			this.descriptorFile = descriptorFile;
+			try {
+				this.document = documentBuilder.loadXML(files.getReader(sourceFile));
+			} catch (SAXException e) {
+				throw new IOException(format("Fail to parse component descriptor |%s|.", sourceFile));
+			}
+			this.hasDpendencies = document.getByTag("dependencies") != null;
+		}
+
+		public List<RepositoryCoordinates> getDependencies() {
+			List<RepositoryCoordinates> dependencies = new ArrayList<>();
+			for (Element dependency : document.findByTag("dependency")) {
+				dependencies.add(new RepositoryCoordinates(getText(dependency, "groupId"), getText(dependency, "artifactId"), getText(dependency, "version")));
+			}
+			return dependencies;
+		}
+
+		public void createScripts() {
+			if (!hasDpendencies) {
+				return;
+			}
+			Element scriptsElement = document.getByTag("scripts");
+			if (scriptsElement == null) {
+				scriptsElement = document.createElement("scripts");
+				document.getRoot().addChild(scriptsElement);
+			}
+			Path scriptFile = files.changeExtension(descriptorFile, "js");
+			scriptElement = document.createElement("script", "src", src(scriptFile));
+			scriptsElement.addChild(scriptElement);
+		}
+
+		public void addScriptDependency(Path scriptFile) {
+			if (scriptElement != null) {
+				scriptElement.addChild(document.createElement("dependency", "src", src(scriptFile)));
+			}
+		}
+
+		private String src(Path scriptFile) {
+			return files.getProjectDir().relativize(scriptFile).toString().replace('\\', '/');
+		}
+
+		public RepositoryCoordinates getCoordinates() {
+			String groupId = getText("groupId");
+			String artifactId = getText("artifactId");
+			String version = getText("version");
+			return new RepositoryCoordinates(groupId, artifactId, version);
+		}
+
+		private String getText(String tagName) {
+			Element element = document.getByTag(tagName);
+			return element != null ? element.getText() : null;
+		}
+
+		private static String getText(Element element, String tagName) {
+			Element childElement = element.getByTag(tagName);
+			return childElement != null ? childElement.getText() : null;
+		}
+
+		public void removeDependencies() {
+			if (!hasDpendencies) {
+				return;
+			}
+			Element dependencies = document.getByTag("dependencies");
+			if (dependencies != null) {
+				dependencies.remove();
+			}
+		}
+
+		public void save() throws IOException {
+			save(descriptorFile);
+		}
+
+		public void save(Path file) throws IOException {
+			document.serialize(files.getWriter(file), true);
+		}
+
+		Document getDocument() {
+			return document;
+		}
+
+		void setScriptElement(Element scriptElement) {
+			this.scriptElement = scriptElement;
+		}
+	}
+}
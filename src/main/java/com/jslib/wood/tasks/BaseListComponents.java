@@ -1,21 +1,25 @@
 package com.jslib.wood.tasks;
 
-import java.io.IOException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.nio.file.attribute.FileTime;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
-import com.jslib.docore.IFiles;
 import com.jslib.dospi.Flags;
 import com.jslib.dospi.IParameters;
 import com.jslib.dospi.IPrintout;
 import com.jslib.dospi.IShell;
 import com.jslib.dospi.ReturnCode;
+import com.jslib.wood.tasks.util.ProjectIndex;
+import com.jslib.wood.tasks.util.ProjectModel;
 
 import js.format.FileSize;
 import js.log.Log;
@@ -24,14 +28,17 @@ import js.log.LogFactory;
 public abstract class BaseListComponents extends WoodTask {
 	private static final Log log = LogFactory.getLog(BaseListComponents.class);
 
+	private static final DateTimeFormatter MODIFIED_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+	private static final FileSize FILE_SIZE_FORMAT = new FileSize();
+
 	private final IShell shell;
-	private final IFiles files;
+	private final ProjectModel model;
 
-	public BaseListComponents(IShell shell, IFiles files) {
+	public BaseListComponents(IShell shell, ProjectModel model) {
 		super();
-		log.trace("BaseListComponents(shell, files)");
+		log.trace("BaseListComponents(shell, model)");
 		this.shell = shell;
-		this.files = files;
+		this.model = model;
 	}
 
 	@Override
@@ -39,6 +46,9 @@ public abstract class BaseListComponents extends WoodTask {
 		log.trace("parameters()");
 		IParameters parameters = super.parameters();
 		parameters.define(0, "display-mode", Flags.ARGUMENT, DisplayMode.class, DisplayMode.brief);
+		parameters.define("filter", String.class, "*");
+		parameters.define("sort", SortKey.class, SortKey.path);
+		parameters.define("top", Integer.class, 0);
 		return parameters;
 	}
 
@@ -46,12 +56,31 @@ public abstract class BaseListComponents extends WoodTask {
 	public ReturnCode execute(IParameters parameters) throws Exception {
 		log.trace("execute(parameters)");
 
-		Path workingDir = files.getProjectDir();
+		ProjectIndex index = model.getIndex();
 		IPrintout printout = shell.getPrintout();
 		DisplayMode displayMode = parameters.get("display-mode", DisplayMode.class);
+		Predicate<ProjectIndex.Directory> filter = filter(parameters.get("filter", String.class));
+		SortKey sortKey = parameters.get("sort", SortKey.class);
+		int top = parameters.get("top", Integer.class);
+
+		// index components list is already sorted by path
+		Stream<ProjectIndex.Directory> components = index.getComponents(descriptorRoot()).stream().filter(filter);
+		if (sortKey != SortKey.path) {
+			components = top(components, sortKey.order, top);
+		} else if (top > 0) {
+			components = components.limit(top);
+		}
 
 		printout.createUnorderedList();
-		files.walkFileTree(workingDir, new FileVisitor(workingDir, printout, displayMode));
+		components.forEach(component -> {
+			if (displayMode == DisplayMode.details) {
+				// component size, files count and modification time include all descendant files
+				LocalDateTime dt = Instant.ofEpochMilli(component.getNewestModified()).atZone(ZoneId.systemDefault()).toLocalDateTime();
+				printout.addListItem(String.format("%s %10s %5d %s", dt.format(MODIFIED_TIME_FORMAT), FILE_SIZE_FORMAT.format(component.getTotalSize()), component.getFilesCount(), component.getPath()));
+			} else {
+				printout.addListItem(component.getPath());
+			}
+		});
 		printout.display();
 
 		return ReturnCode.SUCCESS;
@@ -59,52 +88,65 @@ public abstract class BaseListComponents extends WoodTask {
 
 	protected abstract String descriptorRoot();
 
-	protected class FileVisitor extends SimpleFileVisitor<Path> {
-		private final DateTimeFormatter MODIFIED_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-		private final FileSize FILE_SIZE_FORMAT = new FileSize();
-
-		private final Path workingDir;
-		private final IPrintout printout;
-		private final DisplayMode displayMode;
-
-		private FileTime modifiedTime;
-		private long dirSize;
-
-		public FileVisitor(Path workingDir, IPrintout printout, DisplayMode displayMode) {
-			this.workingDir = workingDir;
-			this.printout = printout;
-			this.displayMode = displayMode;
+	/**
+	 * Create components filter from a path matcher pattern. Pattern has syntax accepted by
+	 * {@link FileSystem#getPathMatcher(String)}; if syntax prefix is missing <code>glob</code> is assumed. A pattern without
+	 * path separator is matched against component name, otherwise against component path.
+	 *
+	 * @param pattern path matcher pattern.
+	 * @return components filter.
+	 */
+	private static Predicate<ProjectIndex.Directory> filter(String pattern) {
+		if (pattern == null || pattern.isEmpty() || pattern.equals("*")) {
+			return component -> true;
 		}
-
-		@Override
-		public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-			modifiedTime = attrs.lastModifiedTime();
-			dirSize = 0;
-			return FileVisitResult.CONTINUE;
+		boolean matchName = pattern.indexOf('/') == -1;
+		if (!pattern.startsWith("glob:") && !pattern.startsWith("regex:")) {
+			pattern = "glob:" + pattern;
 		}
+		PathMatcher matcher = FileSystems.getDefault().getPathMatcher(pattern);
+		return component -> matcher.matches(Paths.get(matchName ? component.getName() : component.getPath()));
+	}
 
-		@Override
-		public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-			dirSize += attrs.size();
-			return FileVisitResult.CONTINUE;
+	/**
+	 * Select first components accordingly given order. If limit is positive uses a bounded heap so that only
+	 * <code>limit</code> components are retained, not the whole list.
+	 *
+	 * @param components components stream,
+	 * @param order components order,
+	 * @param limit the number of components to select, not limited if zero or negative.
+	 * @return first components stream, in requested order.
+	 */
+	private static Stream<ProjectIndex.Directory> top(Stream<ProjectIndex.Directory> components, Comparator<ProjectIndex.Directory> order, int limit) {
+		if (limit <= 0) {
+			return components.sorted(order);
 		}
-
-		@Override
-		public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-			if (files.isXML(dir.resolve(dir.getFileName() + ".xml"), descriptorRoot())) {
-				String compoPath = workingDir.relativize(dir).toString().replace('\\', '/');
-				if (displayMode == DisplayMode.details) {
-					LocalDateTime dt = modifiedTime.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
-					printout.addListItem(String.format("%s %10s %s", dt.format(MODIFIED_TIME_FORMAT), FILE_SIZE_FORMAT.format(dirSize), compoPath));
-				} else {
-					printout.addListItem(compoPath);
-				}
+		// heap head is the last component in requested order, that is, the first to evict
+		PriorityQueue<ProjectIndex.Directory> heap = new PriorityQueue<>(limit + 1, order.reversed());
+		components.forEach(component -> {
+			heap.add(component);
+			if (heap.size() > limit) {
+				heap.poll();
 			}
-			return FileVisitResult.CONTINUE;
-		}
+		});
+		return heap.stream().sorted(order);
 	}
 
 	protected enum DisplayMode {
 		brief, details
 	}
+
+	protected enum SortKey {
+		path(Comparator.comparing(ProjectIndex.Directory::getPath)),
+		/** Largest components first. */
+		size(Comparator.comparingLong(ProjectIndex.Directory::getTotalSize).reversed()),
+		/** Most recently modified components first. */
+		mtime(Comparator.comparingLong(ProjectIndex.Directory::getNewestModified).reversed());
+
+		private final Comparator<ProjectIndex.Directory> order;
+
+		private SortKey(Comparator<ProjectIndex.Directory> order) {
+			this.order = order;
+		}
+	}
 }
@@ -13,6 +13,10 @@ import com.jslib.dospi.IShell;
 import com.jslib.dospi.ReturnCode;
 import com.jslib.dospi.TaskAbortException;
 import com.jslib.dospi.UserCancelException;
+import com.jslib.wood.tasks.util.CompoLock;
+import com.jslib.wood.tasks.util.OperatorsNaming;
+import com.jslib.wood.tasks.util.ProjectModel;
+import com.jslib.wood.tasks.util.UsageGraph;
 
 import js.log.Log;
 import js.log.LogFactory;
@@ -22,13 +26,15 @@ public class DeleteComponent extends WoodTask {
 
 	private final IShell shell;
 	private final IFiles files;
+	private final ProjectModel model;
 
 	@Inject
-	public DeleteComponent(IShell shell, IFiles files) {
+	public DeleteComponent(IShell shell, IFiles files, ProjectModel model) {
 		super();
-		log.trace("DeleteComponent(shell, files)");
+		log.trace("DeleteComponent(shell, files, model)");
 		this.shell = shell;
 		this.files = files;
+		this.model = model;
 	}
 
 	@Override
@@ -51,7 +57,11 @@ public class DeleteComponent extends WoodTask {
 			throw new TaskAbortException("Missing component directory %s.", compoDir);
 		}
 
-		List<String> usedByPaths = files.findFilesByContentPattern(projectDir, ".htm", name).stream().map(file -> projectDir.relativize(file).toString().replace('\\', '/')).filter(path -> !path.startsWith(name)).collect(Collectors.toList());
+		OperatorsNaming naming = OperatorsNaming.of(context);
+		UsageGraph usageGraph = model.getUsageGraph(naming);
+		// component own layout files are not considered usage
+		String compoPrefix = OperatorsNaming.compoPath(name) + '/';
+		List<String> usedByPaths = usageGraph.getUsers(name).stream().filter(path -> !path.startsWith(compoPrefix)).collect(Collectors.toList());
 		if (!usedByPaths.isEmpty()) {
 			log.warn("Component %s is used by:", name);
 			for (String usedByPath : usedByPaths) {
@@ -63,6 +73,11 @@ public class DeleteComponent extends WoodTask {
 		shell.getConsole().confirm("All component '%s' files will be permanently deleted", name);
 		files.cleanDirectory(compoDir);
 		files.delete(compoDir);
+		CompoLock lock = CompoLock.load(projectDir);
+		if (lock.remove(compoDir)) {
+			lock.save();
+		}
+		model.refresh();
 		return ReturnCode.SUCCESS;
 	}
 
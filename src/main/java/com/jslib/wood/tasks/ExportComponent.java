@@ -3,30 +3,34 @@ package com.jslib.wood.tasks;
 import static java.lang.String.format;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.List;
 
 import javax.inject.Inject;
 
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.EntityTemplate;
 import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
-import org.xml.sax.SAXException;
 
 import com.jslib.docore.IFiles;
 import com.jslib.docore.repo.RepositoryCoordinates;
 import com.jslib.dospi.IParameters;
 import com.jslib.dospi.ReturnCode;
 import com.jslib.dospi.TaskAbortException;
+import com.jslib.wood.tasks.util.CompoArchive;
+import com.jslib.wood.tasks.util.CompoManifest;
+import com.jslib.wood.tasks.util.DescriptorHeader;
 
-import js.dom.Document;
-import js.dom.DocumentBuilder;
-import js.dom.Element;
 import js.log.Log;
 import js.log.LogFactory;
-import js.util.Classes;
 
 public class ExportComponent extends WoodTask {
 	private static final Log log = LogFactory.getLog(ExportComponent.class);
@@ -47,6 +51,7 @@ public class ExportComponent extends WoodTask {
 		log.trace("parameters()");
 		IParameters parameters = super.parameters();
 		parameters.define(0, "component-path", String.class);
+		parameters.define("files", Boolean.class, context.get("repository.export.files", boolean.class, "false"));
 		return parameters;
 	}
 
@@ -69,7 +74,8 @@ public class ExportComponent extends WoodTask {
 			throw new TaskAbortException("Missing component descriptor %s.", descriptorFile);
 		}
 
-		RepositoryCoordinates compoCoordinates = compoCoordinates(descriptorFile);
+		DescriptorHeader descriptor = DescriptorHeader.read(descriptorFile, true);
+		RepositoryCoordinates compoCoordinates = descriptor.getCoordinates();
 		if (!compoCoordinates.isValid()) {
 			throw new TaskAbortException("Invalid component descriptor %s. Missing component coordinates.", descriptorFile);
 		}
@@ -77,11 +83,30 @@ public class ExportComponent extends WoodTask {
 		log.info("Cleanup repository component %s.", compoCoordinates);
 		cleanupRepositoryComponent(compoCoordinates);
 
-		for (Path compoFile : files.listFiles(compoDir)) {
-			log.info("Upload file %s.", compoFile);
-			uploadComponentFile(compoFile, compoCoordinates);
+		List<Path> compoFiles = files.listFiles(compoDir);
+		CompoManifest manifest = CompoManifest.create(compoCoordinates, descriptor.getDependencies(), compoFiles);
+
+		// individual files are needed only by importers not aware of component archive
+		if (parameters.get("files", Boolean.class)) {
+			for (Path compoFile : compoFiles) {
+				log.info("Upload file %s.", compoFile);
+				uploadComponentFile(compoFile, compoCoordinates);
+			}
+
+			// manifest is uploaded after files so that it is published only if all component files are
+			log.info("Upload component manifest.");
+			StringWriter manifestWriter = new StringWriter();
+			manifest.save(manifestWriter);
+			upload(CompoManifest.FILE_NAME, new StringEntity(manifestWriter.toString(), StandardCharsets.UTF_8), compoCoordinates);
 		}
 
+		log.info("Upload component archive.");
+		// archive is streamed directly to request body, with chunked transfer, so that it is neither buffered in memory nor
+		// written to a temporary file; archive is built again on every write so entity is repeatable
+		EntityTemplate archiveEntity = new EntityTemplate(stream -> CompoArchive.write(stream, manifest, compoFiles));
+		archiveEntity.setChunked(true);
+		upload(CompoArchive.FILE_NAME, archiveEntity, compoCoordinates);
+
 		return ReturnCode.SUCCESS;
 	}
 
@@ -115,31 +140,21 @@ public class ExportComponent extends WoodTask {
 	}
 
 	private void uploadComponentFile(Path compoFile, RepositoryCoordinates coordinates) throws IOException, TaskAbortException {
-		String url = String.format("%s/%s/%s", context.getex("repository.url"), coordinates.toFilePath(), files.getFileName(compoFile));
+		upload(files.getFileName(compoFile), new InputStreamEntity(files.getInputStream(compoFile)), coordinates);
+	}
+
+	private void upload(String fileName, AbstractHttpEntity entity, RepositoryCoordinates coordinates) throws IOException, TaskAbortException {
+		String url = String.format("%s/%s/%s", context.getex("repository.url"), coordinates.toFilePath(), fileName);
 		try (CloseableHttpClient client = clientBuilder.build()) {
 			HttpPost httpPost = new HttpPost(url);
 			httpPost.setHeader("Content-Type", "application/octet-stream");
-			httpPost.setEntity(new InputStreamEntity(files.getInputStream(compoFile)));
+			httpPost.setEntity(entity);
 
 			try (CloseableHttpResponse response = client.execute(httpPost)) {
 				if (response.getStatusLine().getStatusCode() != 200) {
-					throw new IOException(format("Fail to upload file %s", compoFile));
+					throw new IOException(format("Fail to upload file %s", fileName));
 				}
 			}
 		}
 	}
-
-	private RepositoryCoordinates compoCoordinates(Path descriptorFile) throws IOException, SAXException {
-		DocumentBuilder documentBuilder = Classes.loadService(DocumentBuilder.class);
-		Document descriptorDoc = documentBuilder.loadXML(files.getReader(descriptorFile));
-		String groupId = text(descriptorDoc, "groupId");
-		String artifactId = text(descriptorDoc, "artifactId");
-		String version = text(descriptorDoc, "version");
-		return new RepositoryCoordinates(groupId, artifactId, version);
-	}
-
-	private static String text(Document doc, String tagName) {
-		Element element = doc.getByTag(tagName);
-		return element != null ? element.getText() : null;
-	}
 }
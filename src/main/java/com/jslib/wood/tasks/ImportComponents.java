@@ -0,0 +1,122 @@
+package com.jslib.wood.tasks;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.apache.http.impl.client.HttpClientBuilder;
+
+import com.jslib.docore.IFiles;
+import com.jslib.docore.IHttpRequest;
+import com.jslib.docore.repo.RepositoryCoordinates;
+import com.jslib.dospi.IParameters;
+import com.jslib.dospi.IShell;
+import com.jslib.dospi.ReturnCode;
+import com.jslib.dospi.TaskAbortException;
+import com.jslib.wood.tasks.util.PathMapping;
+import com.jslib.wood.tasks.util.ProjectModel;
+
+import js.log.Log;
+import js.log.LogFactory;
+
+/**
+ * Unattended import of many components, with no prompts. Project paths are computed from path mapping rules, see
+ * {@link PathMapping}, given by <code>paths</code> option or <code>repository.import.paths</code> property. All paths are
+ * validated before project is changed: every component should match a rule, should not be mapped on the same path as
+ * another component and mapped path should not exist on project.
+ */
+public class ImportComponents extends BaseImportComponent {
+	private static final Log log = LogFactory.getLog(ImportComponents.class);
+
+	/** Project paths of the components about to be imported, mapped by coordinates string. */
+	private final Map<String, String> paths = new HashMap<>();
+
+	private PathMapping mapping;
+
+	@Inject
+	public ImportComponents(IShell shell, IFiles files, IHttpRequest httpRequest, HttpClientBuilder clientBuilder, ProjectModel model) {
+		super(shell, files, httpRequest, clientBuilder, model);
+		log.trace("ImportComponents(shell, files, httpRequest, clientBuilder, model)");
+	}
+
+	@Override
+	public IParameters parameters() {
+		log.trace("parameters()");
+		IParameters parameters = super.parameters();
+		parameters.define(0, "coordinates", String.class);
+		parameters.define("paths", String.class, context.get("repository.import.paths", ""));
+		return parameters;
+	}
+
+	@Override
+	public ReturnCode execute(IParameters parameters) throws Exception {
+		log.trace("execute(parameters)");
+
+		Set<RepositoryCoordinates> roots = new LinkedHashSet<>();
+		for (String value : parameters.get("coordinates", String.class).trim().split("[,\\s]+")) {
+			RepositoryCoordinates root = RepositoryCoordinates.parse(value);
+			if (root == null || !root.isValid()) {
+				throw new TaskAbortException("Invalid component coordinates %s. Expected groupId:artifactId:version.", value);
+			}
+			roots.add(root);
+		}
+
+		mapping = new PathMapping(parameters.get("paths", String.class));
+		if (mapping.isEmpty()) {
+			throw new TaskAbortException("Missing path mapping rules. Use 'paths' option or 'repository.import.paths' property.");
+		}
+		paths.clear();
+		return importComponents(roots, parameters.get("offline", Boolean.class));
+	}
+
+	@Override
+	public String getDescription() {
+		return "Import many components from repository, with project paths from mapping rules.";
+	}
+
+	@Override
+	public String getDisplay() {
+		return "Import Components";
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/** Compute and validate all project paths before any component is copied. */
+	@Override
+	protected void beforeImport(List<RepositoryCoordinates> components) throws Exception {
+		Path projectDir = getFiles().getProjectDir();
+		List<String> errors = new ArrayList<>();
+		Map<String, String> owners = new HashMap<>();
+		for (RepositoryCoordinates coordinates : components) {
+			String path = mapping.getPath(coordinates);
+			if (path == null) {
+				errors.add(String.format("%s: no path mapping rule", coordinates));
+				continue;
+			}
+			String owner = owners.putIfAbsent(path, coordinates.toString());
+			if (owner != null) {
+				errors.add(String.format("%s: path %s already mapped to %s", coordinates, path, owner));
+				continue;
+			}
+			if (getFiles().exists(projectDir.resolve(path))) {
+				errors.add(String.format("%s: path %s already exists", coordinates, path));
+				continue;
+			}
+			paths.put(coordinates.toString(), path);
+		}
+		if (!errors.isEmpty()) {
+			throw new TaskAbortException("Cannot import components. %s.", String.join("; ", errors));
+		}
+	}
+
+	@Override
+	protected String localPath(RepositoryCoordinates coordinates) {
+		return paths.get(coordinates.toString());
+	}
+}
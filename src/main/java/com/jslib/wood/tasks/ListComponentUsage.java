@@ -1,15 +1,17 @@
 package com.jslib.wood.tasks;
 
-import java.nio.file.Path;
-import java.util.List;
+import java.util.Collection;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
-import com.jslib.docore.IFiles;
 import com.jslib.dospi.IParameters;
 import com.jslib.dospi.IPrintout;
 import com.jslib.dospi.IShell;
 import com.jslib.dospi.ReturnCode;
+import com.jslib.wood.tasks.util.OperatorsNaming;
+import com.jslib.wood.tasks.util.ProjectModel;
+import com.jslib.wood.tasks.util.UsageGraph;
 
 import js.log.Log;
 import js.log.LogFactory;
@@ -18,14 +20,14 @@ public class ListComponentUsage extends WoodTask {
 	private static final Log log = LogFactory.getLog(ListComponentUsage.class);
 
 	private final IShell shell;
-	private final IFiles files;
+	private final ProjectModel model;
 
 	@Inject
-	public ListComponentUsage(IShell shell, IFiles files) {
+	public ListComponentUsage(IShell shell, ProjectModel model) {
 		super();
-		log.trace("ListComponentUsage(shell, files)");
+		log.trace("ListComponentUsage(shell, model)");
 		this.shell = shell;
-		this.files = files;
+		this.model = model;
 	}
 
 	@Override
@@ -33,6 +35,7 @@ public class ListComponentUsage extends WoodTask {
 		log.trace("parameters()");
 		IParameters parameters = super.parameters();
 		parameters.define(0, "component-path", String.class);
+		parameters.define("pages", Boolean.class, false);
 		return parameters;
 	}
 
@@ -41,21 +44,30 @@ public class ListComponentUsage extends WoodTask {
 		log.trace("execute(parameters)");
 
 		String compoPath = parameters.get("component-path");
+		boolean pages = parameters.get("pages", Boolean.class);
 		log.info("List component usage for %s.", compoPath);
 
-		Path projectDir = files.getProjectDir();
+		OperatorsNaming naming = OperatorsNaming.of(context);
+		UsageGraph usageGraph = model.getUsageGraph(naming);
 
-		List<Path> usedByFiles = files.findFilesByContentPattern(projectDir, ".htm", compoPath);
-		if (usedByFiles.isEmpty()) {
+		Collection<String> users;
+		if (pages) {
+			users = usageGraph.getPages(compoPath);
+		} else {
+			// component own files are not considered usage, e.g. descriptor script referencing component script
+			String compoPrefix = OperatorsNaming.compoPath(compoPath) + '/';
+			users = usageGraph.getUsers(compoPath).stream().filter(path -> !path.startsWith(compoPrefix)).collect(Collectors.toList());
+		}
+		if (users.isEmpty()) {
 			log.info("Component %s is not used.", compoPath);
 			return ReturnCode.SUCCESS;
 		}
 
 		IPrintout printout = shell.getPrintout();
-		printout.addHeading1(String.format("Component %s is used by:", compoPath));
+		printout.addHeading1(String.format(pages ? "Component %s is included by pages:" : "Component %s is used by:", compoPath));
 		printout.createUnorderedList();
-		for (Path usedByFile : usedByFiles) {
-			printout.addListItem(projectDir.relativize(usedByFile).toString());
+		for (String user : users) {
+			printout.addListItem(user);
 		}
 		printout.display();
 
@@ -64,7 +76,7 @@ public class ListComponentUsage extends WoodTask {
 
 	@Override
 	public String getDescription() {
-		return "List files where component is used.";
+		return "List files where component is used or pages including it.";
 	}
 
 	@Override
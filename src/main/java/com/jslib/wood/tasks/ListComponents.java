@@ -2,18 +2,21 @@ package com.jslib.wood.tasks;
 
 import javax.inject.Inject;
 
-import com.jslib.docore.IFiles;
 import com.jslib.dospi.IShell;
+import com.jslib.wood.tasks.util.ProjectModel;
 
 public class ListComponents extends BaseListComponents {
+	/** Descriptor root of the listed components. */
+	static final String DESCRIPTOR_ROOT = "compo";
+
 	@Inject
-	public ListComponents(IShell shell, IFiles files) {
-		super(shell, files);
+	public ListComponents(IShell shell, ProjectModel model) {
+		super(shell, model);
 	}
 
 	@Override
 	protected String descriptorRoot() {
-		return "compo";
+		return DESCRIPTOR_ROOT;
 	}
 
 	@Override
@@ -2,18 +2,21 @@ package com.jslib.wood.tasks;
 
 import javax.inject.Inject;
 
-import com.jslib.docore.IFiles;
 import com.jslib.dospi.IShell;
+import com.jslib.wood.tasks.util.ProjectModel;
 
 public class ListPages extends BaseListComponents {
+	/** Descriptor root of the listed components. */
+	static final String DESCRIPTOR_ROOT = "page";
+
 	@Inject
-	public ListPages(IShell shell, IFiles files) {
-		super(shell, files);
+	public ListPages(IShell shell, ProjectModel model) {
+		super(shell, model);
 	}
 
 	@Override
 	protected String descriptorRoot() {
-		return "page";
+		return DESCRIPTOR_ROOT;
 	}
 
 	@Override
@@ -2,18 +2,21 @@ package com.jslib.wood.tasks;
 
 import javax.inject.Inject;
 
-import com.jslib.docore.IFiles;
 import com.jslib.dospi.IShell;
+import com.jslib.wood.tasks.util.ProjectModel;
 
 public class ListTemplates extends BaseListComponents {
+	/** Descriptor root of the listed components. */
+	static final String DESCRIPTOR_ROOT = "template";
+
 	@Inject
-	public ListTemplates(IShell shell, IFiles files) {
-		super(shell, files);
+	public ListTemplates(IShell shell, ProjectModel model) {
+		super(shell, model);
 	}
 
 	@Override
 	protected String descriptorRoot() {
-		return "template";
+		return DESCRIPTOR_ROOT;
 	}
 
 	@Override
@@ -0,0 +1,124 @@
+package com.jslib.wood.tasks;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import com.jslib.docore.IFiles;
+import com.jslib.dospi.IParameters;
+import com.jslib.dospi.IPrintout;
+import com.jslib.dospi.IShell;
+import com.jslib.dospi.ReturnCode;
+import com.jslib.wood.tasks.util.OperatorsNaming;
+import com.jslib.wood.tasks.util.ProjectIndex;
+import com.jslib.wood.tasks.util.ProjectModel;
+import com.jslib.wood.tasks.util.UsageGraph;
+
+import js.log.Log;
+import js.log.LogFactory;
+
+public class ListUnusedComponents extends WoodTask {
+	private static final Log log = LogFactory.getLog(ListUnusedComponents.class);
+
+	private final IShell shell;
+	private final IFiles files;
+	private final ProjectModel model;
+
+	@Inject
+	public ListUnusedComponents(IShell shell, IFiles files, ProjectModel model) {
+		super();
+		log.trace("ListUnusedComponents(shell, files, model)");
+		this.shell = shell;
+		this.files = files;
+		this.model = model;
+	}
+
+	@Override
+	public IParameters parameters() {
+		log.trace("parameters()");
+		IParameters parameters = super.parameters();
+		parameters.define("delete", Boolean.class, false);
+		return parameters;
+	}
+
+	@Override
+	public ReturnCode execute(IParameters parameters) throws Exception {
+		log.trace("execute(parameters)");
+
+		boolean delete = parameters.get("delete", Boolean.class);
+
+		OperatorsNaming naming = OperatorsNaming.of(context);
+		UsageGraph usageGraph = model.getUsageGraph(naming);
+		ProjectIndex index = model.getIndex();
+
+		Set<String> reachable = usageGraph.getReachableComponents();
+		List<String> unused = new ArrayList<>();
+		for (String descriptorRoot : new String[] { ListTemplates.DESCRIPTOR_ROOT, ListComponents.DESCRIPTOR_ROOT }) {
+			for (ProjectIndex.Directory component : index.getComponents(descriptorRoot)) {
+				if (!reachable.contains(component.getPath())) {
+					unused.add(component.getPath());
+				}
+			}
+		}
+		if (unused.isEmpty()) {
+			log.info("All components are reachable from pages.");
+			return ReturnCode.SUCCESS;
+		}
+
+		IPrintout printout = shell.getPrintout();
+		printout.addHeading1(String.format("%d components not reachable from pages:", unused.size()));
+		printout.createUnorderedList();
+		for (String compoPath : unused) {
+			printout.addListItem(compoPath);
+		}
+		printout.display();
+
+		if (!delete) {
+			return ReturnCode.SUCCESS;
+		}
+
+		shell.getConsole().confirm("All files of %d unused components will be permanently deleted", unused.size());
+		unused.sort(null);
+		String deletedDir = null;
+		for (String compoPath : unused) {
+			if (deletedDir != null && compoPath.startsWith(deletedDir)) {
+				// nested component already deleted with its ancestor
+				continue;
+			}
+			if (hasReachableDescendant(reachable, compoPath)) {
+				log.warn("Keep component %s: it contains reachable components.", compoPath);
+				continue;
+			}
+			log.info("Delete component %s.", compoPath);
+			Path compoDir = files.getProjectDir().resolve(compoPath);
+			files.cleanDirectory(compoDir);
+			files.delete(compoDir);
+			deletedDir = compoPath + '/';
+		}
+		model.refresh();
+		return ReturnCode.SUCCESS;
+	}
+
+	private static boolean hasReachableDescendant(Set<String> reachable, String compoPath) {
+		String prefix = compoPath + '/';
+		for (String reachablePath : reachable) {
+			if (reachablePath.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String getDescription() {
+		return "List components and templates not reachable from any page and optionally delete them.";
+	}
+
+	@Override
+	public String getDisplay() {
+		return "List Unused Components";
+	}
+}
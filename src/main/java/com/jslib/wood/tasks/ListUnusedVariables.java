@@ -0,0 +1,59 @@
+package com.jslib.wood.tasks;
+
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import com.jslib.dospi.IParameters;
+import com.jslib.dospi.IPrintout;
+import com.jslib.dospi.IShell;
+import com.jslib.dospi.ReturnCode;
+import com.jslib.wood.tasks.util.ProjectModel;
+
+import js.log.Log;
+import js.log.LogFactory;
+
+public class ListUnusedVariables extends WoodTask {
+	private static final Log log = LogFactory.getLog(ListUnusedVariables.class);
+
+	private final IShell shell;
+	private final ProjectModel model;
+
+	@Inject
+	public ListUnusedVariables(IShell shell, ProjectModel model) {
+		super();
+		log.trace("ListUnusedVariables(shell, model)");
+		this.shell = shell;
+		this.model = model;
+	}
+
+	@Override
+	public ReturnCode execute(IParameters parameters) throws Exception {
+		log.trace("execute(parameters)");
+
+		Map<String, Set<String>> unused = model.getVariableIndex().getUnusedVariables();
+		if (unused.isEmpty()) {
+			log.info("All variables are used.");
+			return ReturnCode.SUCCESS;
+		}
+
+		IPrintout printout = shell.getPrintout();
+		printout.addHeading1(String.format("%d variables not used:", unused.size()));
+		printout.createUnorderedList();
+		unused.forEach((reference, files) -> printout.addListItem(String.format("%s defined by %s", reference, String.join(", ", files))));
+		printout.display();
+
+		return ReturnCode.SUCCESS;
+	}
+
+	@Override
+	public String getDescription() {
+		return "List variables defined but not referenced from any project file.";
+	}
+
+	@Override
+	public String getDisplay() {
+		return "List Unused Variables";
+	}
+}
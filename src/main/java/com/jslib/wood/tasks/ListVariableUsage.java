@@ -0,0 +1,94 @@
+package com.jslib.wood.tasks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.inject.Inject;
+
+import com.jslib.dospi.IParameters;
+import com.jslib.dospi.IPrintout;
+import com.jslib.dospi.IShell;
+import com.jslib.dospi.ReturnCode;
+import com.jslib.wood.tasks.util.ProjectModel;
+import com.jslib.wood.tasks.util.VariableIndex;
+import com.jslib.wood.tasks.util.VariableReference;
+
+import js.log.Log;
+import js.log.LogFactory;
+
+public class ListVariableUsage extends WoodTask {
+	private static final Log log = LogFactory.getLog(ListVariableUsage.class);
+
+	private final IShell shell;
+	private final ProjectModel model;
+
+	@Inject
+	public ListVariableUsage(IShell shell, ProjectModel model) {
+		super();
+		log.trace("ListVariableUsage(shell, model)");
+		this.shell = shell;
+		this.model = model;
+	}
+
+	@Override
+	public IParameters parameters() {
+		log.trace("parameters()");
+		IParameters parameters = super.parameters();
+		parameters.define(0, "reference", VariableReference.class);
+		return parameters;
+	}
+
+	@Override
+	public ReturnCode execute(IParameters parameters) throws Exception {
+		log.trace("execute(parameters)");
+
+		VariableReference reference = parameters.get("reference", VariableReference.class);
+		VariableIndex variables = model.getVariableIndex();
+
+		List<VariableIndex.Occurrence> definitions = variables.getDefinitions(reference.type(), reference.name());
+		List<VariableIndex.Occurrence> references = variables.getReferences(reference.type(), reference.name());
+		if (definitions.isEmpty() && references.isEmpty()) {
+			log.info("Variable %s is not defined nor referenced.", reference.value());
+			return ReturnCode.SUCCESS;
+		}
+
+		IPrintout printout = shell.getPrintout();
+		if (definitions.isEmpty()) {
+			printout.addHeading1(String.format("Variable %s is not defined.", reference.value()));
+		} else {
+			printout.addHeading1(String.format("Variable %s is defined by:", reference.value()));
+			printout.createUnorderedList();
+			// every definition has both start and end tag occurrences
+			countByFile(definitions).keySet().forEach(printout::addListItem);
+		}
+		if (references.isEmpty()) {
+			printout.addHeading1(String.format("Variable %s is not used.", reference.value()));
+		} else {
+			printout.addHeading1(String.format("Variable %s is used by:", reference.value()));
+			printout.createUnorderedList();
+			countByFile(references).forEach((file, count) -> printout.addListItem(count > 1 ? String.format("%s (%d)", file, count) : file));
+		}
+		printout.display();
+
+		return ReturnCode.SUCCESS;
+	}
+
+	@Override
+	public String getDescription() {
+		return "List files where variable is defined and files where it is used.";
+	}
+
+	@Override
+	public String getDisplay() {
+		return "List Variable Usage";
+	}
+
+	private static Map<String, Integer> countByFile(List<VariableIndex.Occurrence> occurrences) {
+		Map<String, Integer> counts = new TreeMap<>();
+		for (VariableIndex.Occurrence occurrence : occurrences) {
+			counts.merge(occurrence.getFile(), 1, Integer::sum);
+		}
+		return counts;
+	}
+}
@@ -1,7 +1,6 @@
 package com.jslib.wood.tasks;
 
 import static java.lang.String.format;
-import static js.util.Strings.concat;
 
 import java.nio.file.Path;
 
@@ -13,25 +12,30 @@ import com.jslib.dospi.IParameters;
 import com.jslib.dospi.IShell;
 import com.jslib.dospi.ReturnCode;
 import com.jslib.dospi.TaskAbortException;
+import com.jslib.wood.tasks.util.CompoLock;
+import com.jslib.wood.tasks.util.DryRun;
+import com.jslib.wood.tasks.util.FileTransaction;
+import com.jslib.wood.tasks.util.OperatorRewriter;
+import com.jslib.wood.tasks.util.OperatorsNaming;
+import com.jslib.wood.tasks.util.ProjectModel;
 
 import js.log.Log;
 import js.log.LogFactory;
-import js.util.TextReplace;
 
 public class MoveComponent extends WoodTask {
 	private static final Log log = LogFactory.getLog(MoveComponent.class);
 
 	private final IShell shell;
 	private final IFiles files;
-	private final TextReplace textReplace;
+	private final ProjectModel model;
 
 	@Inject
-	public MoveComponent(IShell shell, IFiles files) {
+	public MoveComponent(IShell shell, IFiles files, ProjectModel model) {
 		super();
-		log.trace("MoveComponent(shell, files)");
+		log.trace("MoveComponent(shell, files, model)");
 		this.shell = shell;
 		this.files = files;
-		this.textReplace = new TextReplace();
+		this.model = model;
 	}
 
 	@Override
@@ -40,6 +44,7 @@ public class MoveComponent extends WoodTask {
 		IParameters parameters = super.parameters();
 		parameters.define(0, "component-path", String.class);
 		parameters.define(1, "target-path", String.class);
+		parameters.define("dry-run", Boolean.class, false);
 		return parameters;
 	}
 
@@ -49,6 +54,7 @@ public class MoveComponent extends WoodTask {
 
 		String compoPath = parameters.get("component-path");
 		String targetPath = parameters.get("target-path");
+		boolean dryRun = parameters.get("dry-run", Boolean.class);
 
 		Path projectDir = files.getProjectDir();
 		Path compoDir = projectDir.resolve(compoPath);
@@ -59,38 +65,51 @@ public class MoveComponent extends WoodTask {
 
 		IConsole console = shell.getConsole();
 		Path targetDir = projectDir.resolve(targetPath);
-		if (!files.exists(targetDir)) {
+		if (targetDir.normalize().startsWith(compoDir.normalize())) {
+			throw new TaskAbortException("Cannot move component %s inside itself.", compoPath);
+		}
+		boolean createTargetDir = !files.exists(targetDir);
+		if (createTargetDir && !dryRun) {
 			console.confirm("Create missing %s directory", targetDir);
-			files.createDirectory(targetDir);
 		}
 
 		Path targetCompoDir = targetDir.resolve(compoName);
 		if (files.exists(targetCompoDir)) {
 			throw new TaskAbortException("Existing target component %s.", targetCompoDir);
 		}
-		files.createDirectory(targetCompoDir);
 
-		log.info("Move %s component to %s.", compoPath, targetPath);
-		for (Path compoFile : files.listFiles(compoDir)) {
-			Path targetCompoFile = targetCompoDir.resolve(files.getFileName(compoFile));
-			log.info("Move %s file to %s.", compoFile, targetCompoFile);
-			files.move(compoFile, targetCompoFile);
+		String targetCompoPath = format("%s/%s", targetPath, compoName);
+		log.info("Replace %s with %s in layout operators and descriptor scripts.", compoPath, targetCompoPath);
+		// only reference operators from layouts and script sources from descriptors are rewritten
+		OperatorsNaming naming = OperatorsNaming.of(context);
+		OperatorRewriter rewriter = new OperatorRewriter(naming);
+		rewriter.addPath(compoPath, targetCompoPath);
+
+		if (dryRun) {
+			DryRun preview = new DryRun(projectDir);
+			preview.move(compoDir, targetCompoDir);
+			preview.rewrite(rewriter, model.getIndex().getFiles());
+			preview.display(shell.getPrintout());
+			return ReturnCode.SUCCESS;
 		}
-		files.delete(compoDir);
 
-		String targetCompoPath = format("%s/%s", targetPath, compoName);
-		log.info("Replace %s with %s in .htm files.", compoPath, targetCompoPath);
-		textReplace.addExclude("");
-		textReplace.setFileExtension("htm");
-		textReplace.replaceAll(projectDir.toFile(), compoPath, targetCompoPath);
-
-		String compoScript = concat(compoPath, '/', compoName, ".js");
-		String targetCompoScript = concat(targetPath, '/', compoName, '/', compoName, ".js");
-		Path targetCompoScriptFile = projectDir.resolve(targetCompoScript);
-		log.info("Replace %s with %s in .xml files.", compoScript, targetCompoScript);
-		if (files.exists(targetCompoScriptFile)) {
-			textReplace.setFileExtension("xml");
-			textReplace.replaceAll(projectDir.toFile(), compoScript, targetCompoScript);
+		// all changes are rolled back if any file move or rewrite fails, lockfile included
+		CompoLock lock = CompoLock.load(projectDir);
+		try (FileTransaction transaction = FileTransaction.begin(projectDir)) {
+			if (createTargetDir) {
+				transaction.createDirectory(targetDir);
+			}
+			log.info("Move %s component to %s.", compoPath, targetPath);
+			transaction.move(compoDir, targetCompoDir);
+
+			model.refresh();
+			transaction.rewrite(rewriter, model.getIndex().getFiles());
+			if (lock.move(compoDir, targetCompoDir)) {
+				lock.save(transaction);
+			}
+			transaction.commit();
+		} finally {
+			model.refresh();
 		}
 
 		return ReturnCode.SUCCESS;
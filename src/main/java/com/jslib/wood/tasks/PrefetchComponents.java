@@ -0,0 +1,113 @@
+package com.jslib.wood.tasks;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.apache.http.impl.client.HttpClientBuilder;
+
+import com.jslib.docore.IFiles;
+import com.jslib.docore.IHttpRequest;
+import com.jslib.docore.repo.RepositoryCoordinates;
+import com.jslib.dospi.IParameters;
+import com.jslib.dospi.IPrintout;
+import com.jslib.dospi.IShell;
+import com.jslib.dospi.ReturnCode;
+import com.jslib.dospi.TaskAbortException;
+import com.jslib.wood.tasks.util.CompoRepository;
+import com.jslib.wood.tasks.util.ProjectIndex;
+import com.jslib.wood.tasks.util.ProjectModel;
+
+import js.log.Log;
+import js.log.LogFactory;
+
+/**
+ * Warm local components repository so that components can be imported offline. Fetches given components or, if none
+ * given, all project components with coordinates, together with their transitive dependencies.
+ */
+public class PrefetchComponents extends WoodTask {
+	private static final Log log = LogFactory.getLog(PrefetchComponents.class);
+
+	private final IShell shell;
+	private final IFiles files;
+	private final IHttpRequest httpRequest;
+	private final HttpClientBuilder clientBuilder;
+	private final ProjectModel model;
+
+	@Inject
+	public PrefetchComponents(IShell shell, IFiles files, IHttpRequest httpRequest, HttpClientBuilder clientBuilder, ProjectModel model) {
+		super();
+		log.trace("PrefetchComponents(shell, files, httpRequest, clientBuilder, model)");
+		this.shell = shell;
+		this.files = files;
+		this.httpRequest = httpRequest;
+		this.clientBuilder = clientBuilder;
+		this.model = model;
+	}
+
+	@Override
+	public IParameters parameters() {
+		log.trace("parameters()");
+		IParameters parameters = super.parameters();
+		parameters.define("coordinates", String.class, "");
+		parameters.define("reload", Boolean.class, false);
+		return parameters;
+	}
+
+	@Override
+	public ReturnCode execute(IParameters parameters) throws Exception {
+		log.trace("execute(parameters)");
+
+		Set<RepositoryCoordinates> roots = new LinkedHashSet<>();
+		String coordinates = parameters.get("coordinates", String.class);
+		if (!coordinates.trim().isEmpty()) {
+			for (String value : coordinates.trim().split("[,\\s]+")) {
+				RepositoryCoordinates root = RepositoryCoordinates.parse(value);
+				if (root == null || !root.isValid()) {
+					throw new TaskAbortException("Invalid component coordinates %s. Expected groupId:artifactId:version.", value);
+				}
+				roots.add(root);
+			}
+		} else {
+			for (ProjectIndex.Directory directory : model.getIndex().getDirectories()) {
+				if (directory.isComponent() && directory.getCoordinates().isValid()) {
+					roots.add(directory.getCoordinates());
+				}
+			}
+		}
+		if (roots.isEmpty()) {
+			log.info("No components to prefetch.");
+			return ReturnCode.SUCCESS;
+		}
+
+		Map<String, String> failures;
+		try (CompoRepository repository = new CompoRepository(shell, files, httpRequest, clientBuilder, context)) {
+			repository.setReload(parameters.get("reload", Boolean.class));
+			int threads = context.get("repository.download.threads", int.class, "8");
+			failures = repository.prefetch(roots, threads);
+		}
+		if (failures.isEmpty()) {
+			log.info("Components prefetched on local repository.");
+			return ReturnCode.SUCCESS;
+		}
+
+		IPrintout printout = shell.getPrintout();
+		printout.addHeading1(String.format("%d components failed to prefetch:", failures.size()));
+		printout.createUnorderedList();
+		failures.forEach((component, message) -> printout.addListItem(String.format("%s: %s", component, message)));
+		printout.display();
+		return ReturnCode.ABORT;
+	}
+
+	@Override
+	public String getDescription() {
+		return "Download components and their dependencies into local repository, for offline import.";
+	}
+
+	@Override
+	public String getDisplay() {
+		return "Prefetch Components";
+	}
+}
@@ -0,0 +1,226 @@
+package com.jslib.wood.tasks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import com.jslib.docore.IFiles;
+import com.jslib.dospi.IParameters;
+import com.jslib.dospi.IPrintout;
+import com.jslib.dospi.IShell;
+import com.jslib.dospi.ReturnCode;
+import com.jslib.wood.tasks.util.LayoutScanner;
+import com.jslib.wood.tasks.util.OperatorsNaming;
+import com.jslib.wood.tasks.util.ProjectIndex;
+import com.jslib.wood.tasks.util.ProjectModel;
+import com.jslib.wood.tasks.util.UsageGraph;
+
+import js.format.FileSize;
+import js.json.Json;
+import js.log.Log;
+import js.log.LogFactory;
+import js.util.Classes;
+
+/**
+ * Project statistics per component and totals per descriptor root. Components are processed in parallel; every component
+ * layout is scanned for elements count and nesting depth and dependencies fan-in and fan-out are taken from component usage
+ * graph. Statistics are displayed on printout, largest components first, or saved as JSON file if <code>json</code> option
+ * is present.
+ */
+public class ProjectStats extends WoodTask {
+	private static final Log log = LogFactory.getLog(ProjectStats.class);
+
+	private static final FileSize FILE_SIZE_FORMAT = new FileSize();
+
+	/** HTML elements without end tag; they do not increase layout nesting depth. */
+	private static final Set<String> VOID_ELEMENTS = new HashSet<>(Arrays.asList("area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "param", "source", "track", "wbr"));
+
+	private final IShell shell;
+	private final IFiles files;
+	private final ProjectModel model;
+	private final Json json;
+
+	@Inject
+	public ProjectStats(IShell shell, IFiles files, ProjectModel model) {
+		super();
+		log.trace("ProjectStats(shell, files, model)");
+		this.shell = shell;
+		this.files = files;
+		this.model = model;
+		this.json = Classes.loadService(Json.class);
+	}
+
+	@Override
+	public IParameters parameters() {
+		log.trace("parameters()");
+		IParameters parameters = super.parameters();
+		parameters.define("json", String.class, null);
+		return parameters;
+	}
+
+	@Override
+	public ReturnCode execute(IParameters parameters) throws Exception {
+		log.trace("execute(parameters)");
+
+		String jsonFile = parameters.get("json", String.class);
+
+		OperatorsNaming naming = OperatorsNaming.of(context);
+		UsageGraph usageGraph = model.getUsageGraph(naming);
+		ProjectIndex index = model.getIndex();
+
+		Map<String, RootStats> roots = new LinkedHashMap<>();
+		for (String descriptorRoot : new String[] { ListPages.DESCRIPTOR_ROOT, ListTemplates.DESCRIPTOR_ROOT, ListComponents.DESCRIPTOR_ROOT }) {
+			List<ProjectIndex.Directory> components = index.getComponents(descriptorRoot);
+			List<CompoStats> compoStats;
+			try {
+				compoStats = components.parallelStream().map(component -> stats(index, usageGraph, component)).collect(Collectors.toList());
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			roots.put(descriptorRoot, new RootStats(compoStats));
+		}
+
+		if (jsonFile != null) {
+			Path file = files.getProjectDir().resolve(jsonFile);
+			try (Writer writer = files.getWriter(file)) {
+				json.stringify(writer, roots);
+			}
+			log.info("Project statistics saved to %s.", file);
+			return ReturnCode.SUCCESS;
+		}
+
+		IPrintout printout = shell.getPrintout();
+		roots.forEach((descriptorRoot, rootStats) -> {
+			printout.addHeading1(String.format("%s: %d components, %d files, %s", descriptorRoot, rootStats.componentsCount, rootStats.filesCount, FILE_SIZE_FORMAT.format(rootStats.size)));
+			printout.createUnorderedList();
+			rootStats.components.stream().sorted(Comparator.comparingLong((CompoStats stats) -> stats.size).reversed()).forEach(stats -> {
+				printout.addListItem(String.format("%10s %5d files, js %10s, css %10s, %5d elements, depth %2d, fan-in %3d, fan-out %3d %s", //
+						FILE_SIZE_FORMAT.format(stats.size), stats.filesCount, FILE_SIZE_FORMAT.format(stats.scriptSize), FILE_SIZE_FORMAT.format(stats.styleSize), //
+						stats.elementsCount, stats.depth, stats.fanIn, stats.fanOut, stats.path));
+			});
+		});
+		printout.display();
+
+		return ReturnCode.SUCCESS;
+	}
+
+	private CompoStats stats(ProjectIndex index, UsageGraph usageGraph, ProjectIndex.Directory component) {
+		CompoStats stats = new CompoStats(component.getPath());
+		for (ProjectIndex.FileEntry file : component.getFiles()) {
+			String fileName = file.getName();
+			++stats.filesCount;
+			stats.size += file.getSize();
+			if (fileName.endsWith(".js")) {
+				stats.scriptSize += file.getSize();
+			} else if (fileName.endsWith(".css")) {
+				stats.styleSize += file.getSize();
+			}
+		}
+
+		ProjectIndex.FileEntry layout = component.getFile(component.getName() + ".htm");
+		if (layout != null) {
+			try {
+				scanLayout(index.getProjectDir().resolve(component.getPath()).resolve(layout.getName()), stats);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		stats.fanIn = usageGraph.getUserComponents(component.getPath()).size();
+		stats.fanOut = usageGraph.getDependencies(component.getPath()).size();
+		return stats;
+	}
+
+	private static void scanLayout(Path layoutFile, CompoStats stats) throws IOException {
+		try (Reader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(layoutFile), StandardCharsets.UTF_8))) {
+			new LayoutScanner(reader).scan(new LayoutScanner.Handler() {
+				private int depth;
+
+				@Override
+				public void startElement(String tag, List<LayoutScanner.Attribute> attributes) {
+					++stats.elementsCount;
+					if (!VOID_ELEMENTS.contains(tag.toLowerCase())) {
+						stats.depth = Math.max(stats.depth, ++depth);
+					}
+				}
+
+				@Override
+				public void endElement(String tag) {
+					if (!VOID_ELEMENTS.contains(tag.toLowerCase()) && depth > 0) {
+						--depth;
+					}
+				}
+			});
+		} catch (NoSuchFileException e) {
+			// layout removed after index refresh; report component without layout statistics
+		}
+	}
+
+	@Override
+	public String getDescription() {
+		return "Display project statistics per component and per descriptor root.";
+	}
+
+	@Override
+	public String getDisplay() {
+		return "Project Statistics";
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	private static class RootStats {
+		int componentsCount;
+		int filesCount;
+		long size;
+		long scriptSize;
+		long styleSize;
+		long elementsCount;
+		List<CompoStats> components;
+
+		RootStats(List<CompoStats> components) {
+			this.components = new ArrayList<>(components);
+			this.componentsCount = components.size();
+			for (CompoStats stats : components) {
+				filesCount += stats.filesCount;
+				size += stats.size;
+				scriptSize += stats.scriptSize;
+				styleSize += stats.styleSize;
+				elementsCount += stats.elementsCount;
+			}
+		}
+	}
+
+	private static class CompoStats {
+		String path;
+		int filesCount;
+		long size;
+		long scriptSize;
+		long styleSize;
+		int elementsCount;
+		int depth;
+		int fanIn;
+		int fanOut;
+
+		CompoStats(String path) {
+			this.path = path;
+		}
+	}
+}
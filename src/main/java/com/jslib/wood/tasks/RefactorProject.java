@@ -0,0 +1,481 @@
+package com.jslib.wood.tasks;
+
+import static js.util.Strings.concat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import javax.inject.Inject;
+
+import com.jslib.docore.IFiles;
+import com.jslib.dospi.IParameters;
+import com.jslib.dospi.IShell;
+import com.jslib.dospi.ReturnCode;
+import com.jslib.dospi.TaskAbortException;
+import com.jslib.wood.tasks.util.CompoLock;
+import com.jslib.wood.tasks.util.DryRun;
+import com.jslib.wood.tasks.util.FileTransaction;
+import com.jslib.wood.tasks.util.OffsetRewriter;
+import com.jslib.wood.tasks.util.OperatorRewriter;
+import com.jslib.wood.tasks.util.OperatorsNaming;
+import com.jslib.wood.tasks.util.ProjectIndex;
+import com.jslib.wood.tasks.util.ProjectModel;
+import com.jslib.wood.tasks.util.VariableIndex;
+import com.jslib.wood.tasks.util.VariableReference;
+
+import js.log.Log;
+import js.log.LogFactory;
+
+/**
+ * Apply a refactoring plan: many component renames and moves and variable renames, in a single project pass. Plan file has
+ * one operation per line, with the same arguments as the related task; empty lines and lines starting with hash are
+ * ignored.
+ *
+ * <pre>
+ * # plan sample
+ * rename compo compo/nav menu
+ * move compo compo/menu lib
+ * rename variable @string/title heading
+ * </pre>
+ *
+ * All operations are validated before any file is changed, in plan order, against the project tree as left by previous
+ * operations; an operation can refer to a component by the path resulted from previous operations. Component paths and
+ * variable names are composed, so that chained operations result in a single mapping from original to final value. File
+ * moves are applied in plan order; if plan has variables renames, variables located by {@link VariableIndex} are rewritten
+ * by offsets, then all component references are rewritten in one pass, see {@link OperatorRewriter}. Locked paths of the
+ * imported components are updated too, see {@link CompoLock}. All changes are executed in a {@link FileTransaction} and
+ * rolled back on any failure.
+ */
+public class RefactorProject extends WoodTask {
+	private static final Log log = LogFactory.getLog(RefactorProject.class);
+
+	private final IShell shell;
+	private final IFiles files;
+	private final ProjectModel model;
+
+	@Inject
+	public RefactorProject(IShell shell, IFiles files, ProjectModel model) {
+		super();
+		log.trace("RefactorProject(shell, files, model)");
+		this.shell = shell;
+		this.files = files;
+		this.model = model;
+	}
+
+	@Override
+	public IParameters parameters() {
+		log.trace("parameters()");
+		IParameters parameters = super.parameters();
+		parameters.define(0, "plan-file", String.class);
+		parameters.define("dry-run", Boolean.class, false);
+		return parameters;
+	}
+
+	@Override
+	public ReturnCode execute(IParameters parameters) throws Exception {
+		log.trace("execute(parameters)");
+
+		Path projectDir = files.getProjectDir();
+		Path planFile = projectDir.resolve(parameters.get("plan-file", String.class));
+		if (!files.exists(planFile)) {
+			throw new TaskAbortException("Missing refactoring plan %s.", planFile);
+		}
+
+		ProjectIndex index = model.getIndex();
+		Plan plan = new Plan(index);
+		try (BufferedReader reader = new BufferedReader(files.getReader(planFile))) {
+			String line;
+			for (int lineNumber = 1; (line = reader.readLine()) != null; ++lineNumber) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				plan.add(lineNumber, line.split("\\s+"));
+			}
+		}
+		if (plan.steps.isEmpty() && plan.variables.isEmpty()) {
+			log.info("Empty refactoring plan %s.", planFile);
+			return ReturnCode.SUCCESS;
+		}
+
+		OperatorsNaming naming = OperatorsNaming.of(context);
+		OperatorRewriter operatorRewriter = plan.operatorRewriter(naming);
+		// variables are located on original files; edits are mapped to files as left by plan steps
+		OffsetRewriter variablesRewriter = plan.variablesRewriter(model.getVariableIndex());
+		if (parameters.get("dry-run", Boolean.class)) {
+			DryRun preview = new DryRun(projectDir);
+			for (Step step : plan.steps) {
+				step.apply(preview);
+			}
+			List<Path> projectFiles = index.getFiles();
+			if (variablesRewriter != null) {
+				preview.rewrite(variablesRewriter, projectFiles);
+			}
+			if (!operatorRewriter.isEmpty()) {
+				preview.rewrite(operatorRewriter, projectFiles);
+			}
+			preview.display(shell.getPrintout());
+			return ReturnCode.SUCCESS;
+		}
+
+		CompoLock lock = CompoLock.load(projectDir);
+		boolean lockChanged = false;
+		try (FileTransaction transaction = FileTransaction.begin(projectDir)) {
+			for (Step step : plan.steps) {
+				step.apply(transaction);
+				lockChanged |= lock.move(projectDir.resolve(step.compoPath), projectDir.resolve(step.newCompoPath));
+			}
+			model.refresh();
+			List<Path> projectFiles = model.getIndex().getFiles();
+			// variables pass first, while recorded offsets are still valid; files rewritten twice keep original backup
+			if (variablesRewriter != null) {
+				transaction.rewrite(variablesRewriter, projectFiles);
+			}
+			if (!operatorRewriter.isEmpty()) {
+				transaction.rewrite(operatorRewriter, projectFiles);
+			}
+			if (lockChanged) {
+				lock.save(transaction);
+			}
+			transaction.commit();
+		} finally {
+			model.refresh();
+		}
+		return ReturnCode.SUCCESS;
+	}
+
+	@Override
+	public String getDescription() {
+		return "Apply many component renames, component moves and variable renames in a single project pass.";
+	}
+
+	@Override
+	public String getDisplay() {
+		return "Refactor Project";
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Refactoring plan validated against a virtual project tree, updated by every operation.
+	 */
+	private class Plan {
+		private final ProjectIndex index;
+		/** Virtual project tree: paths of all directories as left by plan operations. */
+		private final Set<String> dirs = new HashSet<>();
+		/** Virtual paths of the components. */
+		private final Set<String> components = new HashSet<>();
+		/** Original component path mapped to its current path; a mapping applies to component descendants too. */
+		private final Map<String, String> moves = new HashMap<>();
+		/** Variable type mapped to original variable names mapped to current names. */
+		private final Map<String, Map<String, String>> variables = new HashMap<>();
+		/** File system changes, in plan order. */
+		private final List<Step> steps = new ArrayList<>();
+
+		Plan(ProjectIndex index) {
+			this.index = index;
+			for (ProjectIndex.Directory directory : index.getDirectories()) {
+				dirs.add(directory.getPath());
+				if (directory.isComponent()) {
+					components.add(directory.getPath());
+				}
+			}
+		}
+
+		void add(int lineNumber, String[] tokens) throws TaskAbortException {
+			if (tokens.length != 4) {
+				throw new TaskAbortException("Invalid plan line %d: expected operation and two arguments.", lineNumber);
+			}
+			String operation = tokens[0] + ' ' + tokens[1];
+			switch (operation) {
+			case "rename compo":
+				renameCompo(lineNumber, path(tokens[2]), tokens[3]);
+				break;
+
+			case "move compo":
+				moveCompo(lineNumber, path(tokens[2]), path(tokens[3]));
+				break;
+
+			case "rename variable":
+				renameVariable(lineNumber, tokens[2], tokens[3]);
+				break;
+
+			default:
+				throw new TaskAbortException("Invalid plan line %d: unknown operation %s.", lineNumber, operation);
+			}
+		}
+
+		private void renameCompo(int lineNumber, String compoPath, String newname) throws TaskAbortException {
+			if (!components.contains(compoPath)) {
+				throw new TaskAbortException("Invalid plan line %d: %s is not a component.", lineNumber, compoPath);
+			}
+			if (newname.indexOf('/') != -1) {
+				throw new TaskAbortException("Invalid plan line %d: component name %s contains path separator.", lineNumber, newname);
+			}
+			int separator = compoPath.lastIndexOf('/') + 1;
+			String newCompoPath = compoPath.substring(0, separator) + newname;
+			if (dirs.contains(newCompoPath)) {
+				throw new TaskAbortException("Invalid plan line %d: target component directory %s already exist.", lineNumber, newCompoPath);
+			}
+			relocate(compoPath, newCompoPath);
+			steps.add(new Step(compoPath, newCompoPath, null));
+		}
+
+		private void moveCompo(int lineNumber, String compoPath, String targetPath) throws TaskAbortException {
+			if (!components.contains(compoPath)) {
+				throw new TaskAbortException("Invalid plan line %d: %s is not a component.", lineNumber, compoPath);
+			}
+			if (targetPath.equals(compoPath) || targetPath.startsWith(compoPath + '/')) {
+				throw new TaskAbortException("Invalid plan line %d: cannot move component %s inside itself.", lineNumber, compoPath);
+			}
+			String newCompoPath = concat(targetPath, '/', name(compoPath));
+			if (dirs.contains(newCompoPath)) {
+				throw new TaskAbortException("Invalid plan line %d: existing target component %s.", lineNumber, newCompoPath);
+			}
+			String createDir = null;
+			if (!dirs.contains(targetPath)) {
+				createDir = targetPath;
+				for (String dir = targetPath; !dir.isEmpty(); dir = parent(dir)) {
+					dirs.add(dir);
+				}
+			}
+			relocate(compoPath, newCompoPath);
+			steps.add(new Step(compoPath, newCompoPath, createDir));
+		}
+
+		private void renameVariable(int lineNumber, String value, String newname) throws TaskAbortException {
+			VariableReference reference;
+			try {
+				reference = VariableReference.parse(value);
+				VariableReference.parse(reference.clone(newname).value());
+			} catch (IllegalArgumentException e) {
+				throw new TaskAbortException("Invalid plan line %d: %s", lineNumber, e.getMessage());
+			}
+			Map<String, String> names = variables.computeIfAbsent(reference.type(), type -> new HashMap<>());
+			// source is either the current name from a previous rename or an original name not renamed yet
+			String origin = null;
+			for (Map.Entry<String, String> entry : names.entrySet()) {
+				if (entry.getValue().equals(reference.name())) {
+					origin = entry.getKey();
+					break;
+				}
+			}
+			if (origin == null) {
+				if (names.containsKey(reference.name())) {
+					throw new TaskAbortException("Invalid plan line %d: variable %s already renamed to @%s/%s.", lineNumber, reference.value(), reference.type(), names.get(reference.name()));
+				}
+				origin = reference.name();
+			}
+			if (names.containsValue(newname)) {
+				throw new TaskAbortException("Invalid plan line %d: variable @%s/%s is already a rename target.", lineNumber, reference.type(), newname);
+			}
+			names.put(origin, newname);
+		}
+
+		/** Move virtual directory and all its descendants, updating original to current paths mapping. */
+		private void relocate(String path, String newPath) {
+			String origin = origin(path);
+			for (Map.Entry<String, String> entry : moves.entrySet()) {
+				entry.setValue(replacePrefix(entry.getValue(), path, newPath));
+			}
+			moves.put(origin, newPath);
+			dirs.addAll(replacePrefix(dirs, path, newPath));
+			components.addAll(replacePrefix(components, path, newPath));
+		}
+
+		/** Get original path of a current path, taking into account moved ancestors. */
+		private String origin(String path) {
+			String origin = path;
+			int matchLength = -1;
+			for (Map.Entry<String, String> entry : moves.entrySet()) {
+				String current = entry.getValue();
+				if (current.length() > matchLength && isPrefix(current, path)) {
+					origin = entry.getKey() + path.substring(current.length());
+					matchLength = current.length();
+				}
+			}
+			return origin;
+		}
+
+		/** Get final path of an original path, taking into account moved ancestors. */
+		private String target(String path) {
+			String target = path;
+			int matchLength = -1;
+			for (Map.Entry<String, String> entry : moves.entrySet()) {
+				String origin = entry.getKey();
+				if (origin.length() > matchLength && isPrefix(origin, path)) {
+					target = entry.getValue() + path.substring(origin.length());
+					matchLength = origin.length();
+				}
+			}
+			return target;
+		}
+
+		/** Remove from paths set all paths under given path and return them with new prefix. */
+		private Set<String> replacePrefix(Set<String> paths, String path, String newPath) {
+			Set<String> newPaths = new HashSet<>();
+			paths.removeIf(item -> {
+				if (isPrefix(path, item)) {
+					newPaths.add(newPath + item.substring(path.length()));
+					return true;
+				}
+				return false;
+			});
+			return newPaths;
+		}
+
+		private String replacePrefix(String item, String path, String newPath) {
+			return isPrefix(path, item) ? newPath + item.substring(path.length()) : item;
+		}
+
+		/**
+		 * Create rewriter for component references with a rule for every moved or renamed component, from original to final
+		 * path. Directory rules apply to descendants too. Components renamed have an additional rule for own script.
+		 */
+		OperatorRewriter operatorRewriter(OperatorsNaming naming) {
+			OperatorRewriter rewriter = new OperatorRewriter(naming);
+			moves.forEach((compoPath, newCompoPath) -> {
+				if (!compoPath.equals(newCompoPath)) {
+					rewriter.addPath(compoPath, newCompoPath);
+					if (!name(compoPath).equals(name(newCompoPath))) {
+						rewriter.addFile(concat(compoPath, '/', name(compoPath), ".js"), concat(newCompoPath, '/', name(newCompoPath), ".js"));
+					}
+				}
+			});
+			return rewriter;
+		}
+
+		/**
+		 * Create rewriter for renamed variables or null if plan has no variables renames. Variables are located by index on
+		 * original files, mapped to final file paths. Variables are validated as by {@link RenameVariable}: renamed variable
+		 * should exist and new name should not be already defined, unless that variable is renamed too by this plan.
+		 *
+		 * @throws TaskAbortException if a renamed variable is not found or new name is already defined.
+		 */
+		OffsetRewriter variablesRewriter(VariableIndex variableIndex) throws TaskAbortException {
+			if (variables.isEmpty()) {
+				return null;
+			}
+			OffsetRewriter rewriter = new OffsetRewriter(index.getProjectDir());
+			for (Map.Entry<String, Map<String, String>> typeNames : variables.entrySet()) {
+				String type = typeNames.getKey();
+				Map<String, String> names = typeNames.getValue();
+				for (Map.Entry<String, String> entry : names.entrySet()) {
+					String name = entry.getKey();
+					String newname = entry.getValue();
+					if (name.equals(newname)) {
+						continue;
+					}
+					VariableReference reference = VariableReference.parse(concat('@', type, '/', name));
+					if (variableIndex.getDefinitions(type, name).isEmpty() && variableIndex.getReferences(type, name).isEmpty()) {
+						throw new TaskAbortException("Variable %s not found.", reference.value());
+					}
+					String renamedNewname = names.get(newname);
+					if (!variableIndex.getDefinitions(type, newname).isEmpty() && (renamedNewname == null || renamedNewname.equals(newname))) {
+						throw new TaskAbortException("Variable %s already defined.", reference.clone(newname).value());
+					}
+					RenameVariable.addEdits(rewriter, variableIndex, reference, newname, this::targetFile);
+				}
+			}
+			return rewriter;
+		}
+
+		/** Get final path of an original file, replaying plan steps, including files renamed with component. */
+		private String targetFile(String file) {
+			for (Step step : steps) {
+				String compoName = name(step.compoPath);
+				String newname = name(step.newCompoPath);
+				String fileName = name(file);
+				int extensionSeparator = fileName.lastIndexOf('.');
+				String basename = extensionSeparator != -1 ? fileName.substring(0, extensionSeparator) : fileName;
+				if (parent(file).equals(step.compoPath) && basename.equals(compoName) && !newname.equals(compoName)) {
+					file = concat(step.compoPath, '/', newname, fileName.substring(basename.length()));
+				}
+				file = replacePrefix(file, step.compoPath, step.newCompoPath);
+			}
+			return file;
+		}
+	}
+
+	/**
+	 * Component directory move or rename, with paths as left by previous steps. On rename, component files named after
+	 * component are renamed too.
+	 */
+	private class Step {
+		private final String compoPath;
+		private final String newCompoPath;
+		private final String createDir;
+
+		Step(String compoPath, String newCompoPath, String createDir) {
+			this.compoPath = compoPath;
+			this.newCompoPath = newCompoPath;
+			this.createDir = createDir;
+		}
+
+		void apply(FileTransaction transaction) throws IOException {
+			Path projectDir = files.getProjectDir();
+			if (createDir != null) {
+				transaction.createDirectory(projectDir.resolve(createDir));
+			}
+			log.info("Move %s component to %s.", compoPath, newCompoPath);
+			for (Path[] move : moves(projectDir.resolve(compoPath), UnaryOperator.identity())) {
+				transaction.move(move[0], move[1]);
+			}
+		}
+
+		/** Record step moves on refactoring preview. Since files are not moved, component files are listed from origin. */
+		void apply(DryRun preview) throws IOException {
+			for (Path[] move : moves(preview.origin(files.getProjectDir().resolve(compoPath)), preview::target)) {
+				preview.move(move[0], move[1]);
+			}
+		}
+
+		/**
+		 * Files named after component, if renamed, then component directory. Component files are listed from given directory
+		 * and mapped to current paths.
+		 */
+		private List<Path[]> moves(Path listDir, UnaryOperator<Path> current) throws IOException {
+			Path projectDir = files.getProjectDir();
+			Path compoDir = projectDir.resolve(compoPath);
+			List<Path[]> moves = new ArrayList<>();
+			String compoName = name(compoPath);
+			String newname = name(newCompoPath);
+			if (!newname.equals(compoName)) {
+				for (Path compoFile : files.listFiles(listDir, path -> files.getFileBasename(current.apply(path)).equals(compoName))) {
+					moves.add(new Path[] { current.apply(compoFile), compoDir.resolve(concat(newname, '.', files.getExtension(compoFile))) });
+				}
+			}
+			moves.add(new Path[] { compoDir, projectDir.resolve(newCompoPath) });
+			return moves;
+		}
+	}
+
+	private static String path(String path) {
+		path = path.replace('\\', '/');
+		while (path.endsWith("/")) {
+			path = path.substring(0, path.length() - 1);
+		}
+		return path;
+	}
+
+	private static String name(String path) {
+		return path.substring(path.lastIndexOf('/') + 1);
+	}
+
+	private static String parent(String path) {
+		int separator = path.lastIndexOf('/');
+		return separator != -1 ? path.substring(0, separator) : "";
+	}
+
+	private static boolean isPrefix(String prefix, String path) {
+		return path.equals(prefix) || path.startsWith(prefix + '/');
+	}
+}
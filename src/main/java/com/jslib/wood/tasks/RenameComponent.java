@@ -4,32 +4,41 @@ import static js.util.Strings.concat;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.List;
 
 import javax.inject.Inject;
 
 import com.jslib.docore.IFiles;
 import com.jslib.dospi.IParameters;
+import com.jslib.dospi.IShell;
 import com.jslib.dospi.ReturnCode;
 import com.jslib.dospi.TaskAbortException;
+import com.jslib.wood.tasks.util.CompoLock;
+import com.jslib.wood.tasks.util.DryRun;
+import com.jslib.wood.tasks.util.FileTransaction;
+import com.jslib.wood.tasks.util.OperatorRewriter;
+import com.jslib.wood.tasks.util.OperatorsNaming;
+import com.jslib.wood.tasks.util.ProjectModel;
 
 import js.log.Log;
 import js.log.LogFactory;
-import js.util.TextReplace;
 
 public class RenameComponent extends WoodTask {
 	private static final Log log = LogFactory.getLog(RenameComponent.class);
 
+	private final IShell shell;
 	private final IFiles files;
+	private final ProjectModel model;
 	private final Path projectDir;
-	private final TextReplace textReplace;
 
 	@Inject
-	public RenameComponent(IFiles files) {
+	public RenameComponent(IShell shell, IFiles files, ProjectModel model) {
 		super();
-		log.trace("RenameComponent()");
+		log.trace("RenameComponent(shell, files, model)");
+		this.shell = shell;
 		this.files = files;
+		this.model = model;
 		this.projectDir = files.getProjectDir();
-		this.textReplace = new TextReplace();
 	}
 
 	@Override
@@ -38,6 +47,7 @@ public class RenameComponent extends WoodTask {
 		IParameters parameters = super.parameters();
 		parameters.define(0, "compo-name", String.class);
 		parameters.define(1, "new-name", String.class);
+		parameters.define("dry-run", Boolean.class, false);
 		return parameters;
 	}
 
@@ -46,6 +56,7 @@ public class RenameComponent extends WoodTask {
 		log.trace("execute(parameters)");
 		String name = parameters.get("compo-name", String.class);
 		String newname = parameters.get("new-name");
+		boolean dryRun = parameters.get("dry-run", Boolean.class);
 
 		Path compoDir = projectDir.resolve(name);
 		if (!files.exists(compoDir)) {
@@ -62,14 +73,6 @@ public class RenameComponent extends WoodTask {
 			throw new TaskAbortException("Target component directory %s already exist.", newCompoDir);
 		}
 
-		// rename component files into current component directory then rename directory too
-		for (Path compoFile : files.listFiles(compoDir, path -> files.getFileBasename(path).equals(files.getFileName(compoDir)))) {
-			Path newCompoFile = compoDir.resolve(concat(newname, '.', files.getExtension(compoFile)));
-			log.info("Rename %s file to %s.", compoFile, newCompoFile);
-			files.move(compoFile, newCompoFile);
-		}
-		files.move(compoDir, newCompoDir);
-
 		String compoPath = name;
 		int pathSeparator = compoPath.lastIndexOf('/') + 1;
 		String newCompoPath;
@@ -79,16 +82,43 @@ public class RenameComponent extends WoodTask {
 			newCompoPath = newname;
 		}
 
-		textReplace.addExclude("");
-		textReplace.setFileExtension("htm");
-		textReplace.replaceAll(projectDir.toFile(), compoPath, newCompoPath);
+		// only reference operators from layouts and script sources from descriptors are rewritten
+		OperatorsNaming naming = OperatorsNaming.of(context);
+		OperatorRewriter rewriter = new OperatorRewriter(naming);
+		rewriter.addPath(compoPath, newCompoPath);
+		rewriter.addFile(concat(compoPath, '/', files.getFileName(compoDir), ".js"), concat(newCompoPath, '/', newname, ".js"));
+
+		List<Path> compoFiles = files.listFiles(compoDir, path -> files.getFileBasename(path).equals(files.getFileName(compoDir)));
+		if (dryRun) {
+			DryRun preview = new DryRun(projectDir);
+			for (Path compoFile : compoFiles) {
+				preview.move(compoFile, compoDir.resolve(concat(newname, '.', files.getExtension(compoFile))));
+			}
+			preview.move(compoDir, newCompoDir);
+			preview.rewrite(rewriter, model.getIndex().getFiles());
+			preview.display(shell.getPrintout());
+			return ReturnCode.SUCCESS;
+		}
 
-		String compoScript = concat(compoPath, '/', files.getFileName(compoDir), ".js");
-		String newCompoScript = concat(newCompoPath, '/', files.getFileName(newCompoDir), ".js");
-		Path newCompoScriptFile = projectDir.resolve(newCompoScript);
-		if (files.exists(newCompoScriptFile)) {
-			textReplace.setFileExtension("xml");
-			textReplace.replaceAll(projectDir.toFile(), compoScript, newCompoScript);
+		// all changes are rolled back if any file move or rewrite fails, lockfile included
+		CompoLock lock = CompoLock.load(projectDir);
+		try (FileTransaction transaction = FileTransaction.begin(projectDir)) {
+			// rename component files into current component directory then rename directory too
+			for (Path compoFile : compoFiles) {
+				Path newCompoFile = compoDir.resolve(concat(newname, '.', files.getExtension(compoFile)));
+				log.info("Rename %s file to %s.", compoFile, newCompoFile);
+				transaction.move(compoFile, newCompoFile);
+			}
+			transaction.move(compoDir, newCompoDir);
+
+			model.refresh();
+			transaction.rewrite(rewriter, model.getIndex().getFiles());
+			if (lock.move(compoDir, newCompoDir)) {
+				lock.save(transaction);
+			}
+			transaction.commit();
+		} finally {
+			model.refresh();
 		}
 		return ReturnCode.SUCCESS;
 	}
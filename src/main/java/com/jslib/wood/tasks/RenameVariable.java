@@ -1,34 +1,36 @@
 package com.jslib.wood.tasks;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Path;
-import java.util.Arrays;
-import java.util.List;
+import java.util.function.UnaryOperator;
 
 import javax.inject.Inject;
 
-import com.jslib.docore.IFiles;
 import com.jslib.dospi.IParameters;
+import com.jslib.dospi.IShell;
 import com.jslib.dospi.ReturnCode;
+import com.jslib.dospi.TaskAbortException;
+import com.jslib.wood.tasks.util.DryRun;
+import com.jslib.wood.tasks.util.FileTransaction;
+import com.jslib.wood.tasks.util.OffsetRewriter;
+import com.jslib.wood.tasks.util.ProjectIndex;
+import com.jslib.wood.tasks.util.ProjectModel;
+import com.jslib.wood.tasks.util.VariableIndex;
 import com.jslib.wood.tasks.util.VariableReference;
 
 import js.log.Log;
 import js.log.LogFactory;
-import js.util.Files;
-import js.util.TextReplace;
 
 public class RenameVariable extends WoodTask {
 	private static final Log log = LogFactory.getLog(RenameVariable.class);
 
-	private IFiles files;
-	private TextReplace textReplace = new TextReplace();
+	private final IShell shell;
+	private final ProjectModel model;
 
 	@Inject
-	protected RenameVariable(IFiles files) {
+	protected RenameVariable(IShell shell, ProjectModel model) {
 		super();
-		log.trace("RenameVariable(files)");
-		this.files = files;
+		log.trace("RenameVariable(shell, model)");
+		this.shell = shell;
+		this.model = model;
 	}
 
 	@Override
@@ -37,6 +39,7 @@ public class RenameVariable extends WoodTask {
 		IParameters parameters = super.parameters();
 		parameters.define(0, "reference", VariableReference.class);
 		parameters.define(1, "new-name", String.class);
+		parameters.define("dry-run", Boolean.class, false);
 		return parameters;
 	}
 
@@ -44,16 +47,33 @@ public class RenameVariable extends WoodTask {
 	public ReturnCode execute(IParameters parameters) throws Exception {
 		log.trace("execute(parameters)");
 
-		Path projectDir = files.getProjectDir();
 		VariableReference reference = parameters.get("reference", VariableReference.class);
 		String newname = parameters.get("new-name");
+		boolean dryRun = parameters.get("dry-run", Boolean.class);
 
-		textReplace.setFilter(file -> isXML(file, reference.type()));
-		textReplace.replaceAll(projectDir.toFile(), reference.name(), newname);
+		ProjectIndex index = model.getIndex();
+		VariableIndex variables = model.getVariableIndex();
+		if (!variables.getDefinitions(reference.type(), newname).isEmpty()) {
+			throw new TaskAbortException("Variable %s already defined.", reference.clone(newname).value());
+		}
+		OffsetRewriter rewriter = new OffsetRewriter(index.getProjectDir());
+		addEdits(rewriter, variables, reference, newname, UnaryOperator.identity());
+		if (rewriter.isEmpty()) {
+			throw new TaskAbortException("Variable %s not found.", reference.value());
+		}
 
-		textReplace.setFilter(file -> isTargetFile(file));
-		String newreference = reference.clone(newname).value();
-		textReplace.replaceAll(projectDir.toFile(), reference.value(), newreference);
+		if (dryRun) {
+			DryRun preview = new DryRun(index.getProjectDir());
+			preview.rewrite(rewriter, index.getFiles());
+			preview.display(shell.getPrintout());
+			return ReturnCode.SUCCESS;
+		}
+		try (FileTransaction transaction = FileTransaction.begin(index.getProjectDir())) {
+			transaction.rewrite(rewriter, index.getFiles());
+			transaction.commit();
+		} finally {
+			model.refresh();
+		}
 
 		return ReturnCode.SUCCESS;
 	}
@@ -68,21 +88,23 @@ public class RenameVariable extends WoodTask {
 		return "Rename Variable";
 	}
 
-	private static boolean isXML(File file, String root) {
-		try {
-			return Files.isXML(file, root);
-		} catch (IOException e) {
+	/**
+	 * Add edits for variable renaming, as located by variables index: start and end tag names of variable definitions and
+	 * variable references.
+	 *
+	 * @param rewriter offset rewriter,
+	 * @param variables project variables index,
+	 * @param reference reference of the variable to rename,
+	 * @param newname variable new name,
+	 * @param fileMapping mapping of indexed file path to file path at rewrite time, for files moved meanwhile.
+	 */
+	static void addEdits(OffsetRewriter rewriter, VariableIndex variables, VariableReference reference, String newname, UnaryOperator<String> fileMapping) {
+		for (VariableIndex.Occurrence definition : variables.getDefinitions(reference.type(), reference.name())) {
+			rewriter.add(fileMapping.apply(definition.getFile()), definition.getOffset(), reference.name(), newname);
 		}
-		return false;
-	}
-
-	private static boolean isTargetFile(File file) {
-		List<String> targetFileExtensions = Arrays.asList("htm", "css", "js", "xml", "json");
-		for (String targetFileExtension : targetFileExtensions) {
-			if (file.getName().endsWith(targetFileExtension)) {
-				return true;
-			}
+		String newValue = reference.clone(newname).value();
+		for (VariableIndex.Occurrence occurrence : variables.getReferences(reference.type(), reference.name())) {
+			rewriter.add(fileMapping.apply(occurrence.getFile()), occurrence.getOffset(), reference.value(), newValue);
 		}
-		return false;
 	}
 }
@@ -17,20 +17,29 @@ public class Repository {
 		TASKS.put("deploy project", new TaskReference(DeployProject.class, true));
 		TASKS.put("export compo", new TaskReference(ExportComponent.class, true));
 		TASKS.put("import compo", new TaskReference(ImportComponent.class, true));
+		TASKS.put("import compos", new TaskReference(ImportComponents.class, true));
 		TASKS.put("list compo usage", new TaskReference(ListComponentUsage.class, true));
 		TASKS.put("list compos", new TaskReference(ListComponents.class, true));
 		TASKS.put("list pages", new TaskReference(ListPages.class, true));
 		TASKS.put("list properties", new TaskReference(ListProperties.class, true));
 		TASKS.put("list templates", new TaskReference(ListTemplates.class, true));
+		TASKS.put("list unused compos", new TaskReference(ListUnusedComponents.class, true));
+		TASKS.put("list unused variables", new TaskReference(ListUnusedVariables.class, true));
+		TASKS.put("list variable usage", new TaskReference(ListVariableUsage.class, true));
 		TASKS.put("move compo", new TaskReference(MoveComponent.class, true));
 		TASKS.put("open page", new TaskReference(OpenPage.class, true));
+		TASKS.put("prefetch compos", new TaskReference(PrefetchComponents.class, true));
 		TASKS.put("preview compo", new TaskReference(PreviewComponent.class, true));
 		TASKS.put("preview page", new TaskReference(PreviewPage.class, true));
+		TASKS.put("project stats", new TaskReference(ProjectStats.class, true));
+		TASKS.put("refactor", new TaskReference(RefactorProject.class, true));
 		TASKS.put("rename compo", new TaskReference(RenameComponent.class, true));
 		TASKS.put("rename variable", new TaskReference(RenameVariable.class, true));
 		TASKS.put("start runtime", new TaskReference(StartRuntime.class, true));
 		TASKS.put("stop runtime", new TaskReference(StopRuntime.class, true));
 		TASKS.put("update runtime", new TaskReference(UpdateRuntime.class, true));
+		TASKS.put("upgrade compo", new TaskReference(UpgradeComponent.class, true));
+		TASKS.put("verify compos", new TaskReference(VerifyComponents.class, true));
 
 		TASKS.put("clean build project", new TaskReference("file:clean-build-project.do", false));
 		TASKS.put("clean deploy project", new TaskReference("file:clean-deploy-project.do", false));
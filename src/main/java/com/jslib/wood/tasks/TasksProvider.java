@@ -10,6 +10,7 @@ import com.jslib.dospi.ITask;
 import com.jslib.dospi.ITasksProvider;
 import com.jslib.dospi.TaskReference;
 import com.jslib.wood.tasks.util.CompoUtils;
+import com.jslib.wood.tasks.util.ProjectModel;
 
 import js.log.Log;
 import js.log.LogFactory;
@@ -42,20 +43,29 @@ public class TasksProvider implements ITasksProvider {
 		list.add(DeployProject.class);
 		list.add(ExportComponent.class);
 		list.add(ImportComponent.class);
+		list.add(ImportComponents.class);
 		list.add(ListComponentUsage.class);
 		list.add(ListComponents.class);
 		list.add(ListPages.class);
 		list.add(ListProperties.class);
 		list.add(ListTemplates.class);
+		list.add(ListUnusedComponents.class);
+		list.add(ListUnusedVariables.class);
+		list.add(ListVariableUsage.class);
 		list.add(MoveComponent.class);
 		list.add(OpenPage.class);
+		list.add(PrefetchComponents.class);
 		list.add(PreviewComponent.class);
 		list.add(PreviewPage.class);
+		list.add(ProjectStats.class);
+		list.add(RefactorProject.class);
 		list.add(RenameComponent.class);
 		list.add(RenameVariable.class);
 		list.add(StartRuntime.class);
 		list.add(StopRuntime.class);
 		list.add(UpdateRuntime.class);
+		list.add(UpgradeComponent.class);
+		list.add(VerifyComponents.class);
 
 		return list;
 	}
@@ -64,6 +74,7 @@ public class TasksProvider implements ITasksProvider {
 	public List<Class<?>> getDependencies() {
 		List<Class<?>> dependencies = new ArrayList<>();
 		dependencies.add(CompoUtils.class);
+		dependencies.add(ProjectModel.class);
 		return dependencies;
 	}
 
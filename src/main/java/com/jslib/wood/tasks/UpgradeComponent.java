@@ -0,0 +1,61 @@
+package com.jslib.wood.tasks;
+
+import javax.inject.Inject;
+
+import org.apache.http.impl.client.HttpClientBuilder;
+
+import com.jslib.docore.IFiles;
+import com.jslib.docore.IHttpRequest;
+import com.jslib.docore.repo.RepositoryCoordinates;
+import com.jslib.dospi.IParameters;
+import com.jslib.dospi.IShell;
+import com.jslib.dospi.ReturnCode;
+import com.jslib.wood.tasks.util.ProjectModel;
+
+import js.log.Log;
+import js.log.LogFactory;
+
+/**
+ * Upgrade imported component to another version, in place. Only files changed by new version are written; new
+ * dependencies are imported on prompted project paths.
+ */
+public class UpgradeComponent extends BaseImportComponent {
+	private static final Log log = LogFactory.getLog(UpgradeComponent.class);
+
+	@Inject
+	public UpgradeComponent(IShell shell, IFiles files, IHttpRequest httpRequest, HttpClientBuilder clientBuilder, ProjectModel model) {
+		super(shell, files, httpRequest, clientBuilder, model);
+		log.trace("UpgradeComponent(shell, files, httpRequest, clientBuilder, model)");
+	}
+
+	@Override
+	public IParameters parameters() {
+		log.trace("parameters()");
+		IParameters parameters = super.parameters();
+		parameters.define(0, "component-coordinates", RepositoryCoordinates.class);
+		parameters.define("force", Boolean.class, false);
+		return parameters;
+	}
+
+	@Override
+	public ReturnCode execute(IParameters parameters) throws Exception {
+		log.trace("execute(parameters)");
+		RepositoryCoordinates coordinates = parameters.get("component-coordinates", RepositoryCoordinates.class);
+		return upgradeComponent(coordinates, parameters.get("offline", Boolean.class), parameters.get("force", Boolean.class));
+	}
+
+	@Override
+	protected String localPath(RepositoryCoordinates coordinates) throws Exception {
+		return getShell().getConsole().prompt(String.format("local path for %s", coordinates));
+	}
+
+	@Override
+	public String getDescription() {
+		return "Upgrade imported component to another version, writing only changed files.";
+	}
+
+	@Override
+	public String getDisplay() {
+		return "Upgrade Component";
+	}
+}
@@ -0,0 +1,96 @@
+package com.jslib.wood.tasks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import com.jslib.docore.IFiles;
+import com.jslib.dospi.IParameters;
+import com.jslib.dospi.IPrintout;
+import com.jslib.dospi.IShell;
+import com.jslib.dospi.ReturnCode;
+import com.jslib.wood.tasks.util.CompoLock;
+
+import js.log.Log;
+import js.log.LogFactory;
+
+/**
+ * Check imported components against project lockfile, see {@link CompoLock}. Components are verified in parallel by
+ * hashing their files; no repository access and no dependencies resolution. Reports missing, modified and added files
+ * and aborts if any component was changed since import.
+ */
+public class VerifyComponents extends WoodTask {
+	private static final Log log = LogFactory.getLog(VerifyComponents.class);
+
+	private final IShell shell;
+	private final IFiles files;
+
+	@Inject
+	public VerifyComponents(IShell shell, IFiles files) {
+		super();
+		log.trace("VerifyComponents(shell, files)");
+		this.shell = shell;
+		this.files = files;
+	}
+
+	@Override
+	public ReturnCode execute(IParameters parameters) throws Exception {
+		log.trace("execute(parameters)");
+
+		Path projectDir = files.getProjectDir();
+		CompoLock lock = CompoLock.load(projectDir);
+		if (lock.getEntries().isEmpty()) {
+			log.info("No imported components on project lockfile.");
+			return ReturnCode.SUCCESS;
+		}
+
+		Map<CompoLock.Entry, Map<String, String>> changes;
+		try {
+			changes = lock.getEntries().parallelStream().collect(Collectors.toConcurrentMap(entry -> entry, entry -> {
+				try {
+					return entry.getChanges(projectDir);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		// report in lockfile order, that is, sorted by coordinates
+		Map<String, String> problems = new TreeMap<>();
+		for (CompoLock.Entry entry : lock.getEntries()) {
+			Map<String, String> compoChanges = changes.get(entry);
+			if (!compoChanges.isEmpty()) {
+				String report = compoChanges.entrySet().stream().map(change -> String.format("%s %s", change.getValue(), change.getKey())).collect(Collectors.joining(", "));
+				problems.put(entry.getCoordinates(), String.format("%s: %s", entry.getPath(), report));
+			}
+		}
+		if (problems.isEmpty()) {
+			log.info("All %d imported components match project lockfile.", lock.getEntries().size());
+			return ReturnCode.SUCCESS;
+		}
+
+		IPrintout printout = shell.getPrintout();
+		printout.addHeading1(String.format("%d components changed since import:", problems.size()));
+		printout.createUnorderedList();
+		problems.forEach((component, report) -> printout.addListItem(String.format("%s %s", component, report)));
+		printout.display();
+		return ReturnCode.ABORT;
+	}
+
+	@Override
+	public String getDescription() {
+		return "Verify imported components against project lockfile.";
+	}
+
+	@Override
+	public String getDisplay() {
+		return "Verify Components";
+	}
+}
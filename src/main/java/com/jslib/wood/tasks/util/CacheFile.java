@@ -0,0 +1,94 @@
+package com.jslib.wood.tasks.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import js.log.Log;
+import js.log.LogFactory;
+
+/**
+ * Binary cache file stored on project cache directory, see {@link ProjectIndex#CACHE_DIR}. Cache file starts with format
+ * version; a cache with different format version is discarded. Since content is a cache, load and save failures are logged
+ * but not propagated.
+ */
+class CacheFile {
+	private static final Log log = LogFactory.getLog(CacheFile.class);
+
+	private final Path file;
+	private final int version;
+
+	public CacheFile(Path projectDir, String fileName, int version) {
+		this.file = projectDir.resolve(ProjectIndex.CACHE_DIR).resolve(fileName);
+		this.version = version;
+	}
+
+	/**
+	 * Load cache file content. Returns false if cache file is missing, has obsolete format or is corrupt, in which case
+	 * caller should discard partially loaded content.
+	 *
+	 * @param loader cache content reader.
+	 * @return true if cache was successfully loaded.
+	 */
+	public boolean load(Loader loader) {
+		if (!Files.exists(file)) {
+			return false;
+		}
+		try (DataInputStream stream = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (stream.readInt() != version) {
+				log.debug("Discard cache file %s with obsolete format.", file);
+				return false;
+			}
+			loader.load(stream);
+			return true;
+		} catch (IOException e) {
+			log.warn("Corrupt cache file %s. Rebuild it.", file);
+			return false;
+		}
+	}
+
+	/**
+	 * Save cache content into a temporary file then atomically replace existing cache file.
+	 *
+	 * @param saver cache content writer.
+	 */
+	public void save(Saver saver) {
+		Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			Files.createDirectories(file.getParent());
+			try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+				stream.writeInt(version);
+				saver.save(stream);
+			}
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			log.warn("Fail to save cache file %s: %s", file, e.getMessage());
+		}
+	}
+
+	public static void writeString(DataOutputStream stream, String value) throws IOException {
+		stream.writeBoolean(value != null);
+		if (value != null) {
+			stream.writeUTF(value);
+		}
+	}
+
+	public static String readString(DataInputStream stream) throws IOException {
+		return stream.readBoolean() ? stream.readUTF() : null;
+	}
+
+	@FunctionalInterface
+	public interface Loader {
+		void load(DataInputStream stream) throws IOException;
+	}
+
+	@FunctionalInterface
+	public interface Saver {
+		void save(DataOutputStream stream) throws IOException;
+	}
+}
@@ -0,0 +1,134 @@
+package com.jslib.wood.tasks.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HTTP cache validators for the files of a component cached on local repository, stored in a hidden file next to
+ * component files. For every file keeps entity tag and last modification time, as sent by server, used for conditional
+ * requests, and content SHA-256 hash. Validators file has one line per component file, with tab separated values; missing
+ * values are stored as dash.
+ */
+public class CacheValidators {
+	/** Validators file name, hidden so that it is not copied with component files. */
+	public static final String FILE_NAME = ".validators";
+
+	private static final String MISSING = "-";
+
+	private final Path file;
+	/** Validators mapped by component file name. */
+	private final Map<String, Validator> validators = new ConcurrentHashMap<>();
+
+	private CacheValidators(Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * Load validators for component cached on given directory. Returns empty validators if there is no validators file.
+	 *
+	 * @param compoDir component directory from local repository.
+	 * @return component validators.
+	 * @throws IOException if validators file reading fails.
+	 */
+	public static CacheValidators load(Path compoDir) throws IOException {
+		CacheValidators validators = new CacheValidators(compoDir.resolve(FILE_NAME));
+		if (Files.exists(validators.file)) {
+			try (BufferedReader reader = Files.newBufferedReader(validators.file, StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String[] values = line.split("\t");
+					if (values.length == 4) {
+						validators.validators.put(values[0], new Validator(value(values[1]), value(values[2]), value(values[3])));
+					}
+				}
+			}
+		}
+		return validators;
+	}
+
+	public Validator get(String fileName) {
+		return validators.get(fileName);
+	}
+
+	public void put(String fileName, Validator validator) {
+		validators.put(fileName, validator);
+	}
+
+	/**
+	 * Remove validators for files not present on given collection.
+	 *
+	 * @param fileNames names of the component files to keep.
+	 */
+	public void retain(Collection<String> fileNames) {
+		validators.keySet().retainAll(fileNames);
+	}
+
+	/**
+	 * Save validators into temporary file then atomically replace validators file.
+	 *
+	 * @throws IOException if file writing fails.
+	 */
+	public void save() throws IOException {
+		Path tempFile = file.resolveSibling(FILE_NAME + ".tmp");
+		try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+			for (Map.Entry<String, Validator> entry : new TreeMap<>(validators).entrySet()) {
+				Validator validator = entry.getValue();
+				writer.write(String.join("\t", entry.getKey(), text(validator.etag), text(validator.lastModified), text(validator.sha256)));
+				writer.newLine();
+			}
+		}
+		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static String value(String text) {
+		return MISSING.equals(text) ? null : text;
+	}
+
+	private static String text(String value) {
+		return value != null ? value : MISSING;
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Validators for a single file. Entity tag and last modification time are HTTP header values, possible null if not
+	 * sent by server.
+	 */
+	public static class Validator {
+		private final String etag;
+		private final String lastModified;
+		private final String sha256;
+
+		public Validator(String etag, String lastModified, String sha256) {
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.sha256 = sha256;
+		}
+
+		public String getEtag() {
+			return etag;
+		}
+
+		public String getLastModified() {
+			return lastModified;
+		}
+
+		public String getSha256() {
+			return sha256;
+		}
+
+		/** Test if there is at least one validator usable on conditional requests. */
+		public boolean isConditional() {
+			return etag != null || lastModified != null;
+		}
+	}
+}
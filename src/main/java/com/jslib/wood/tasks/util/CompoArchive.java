@@ -0,0 +1,143 @@
+package com.jslib.wood.tasks.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Single file component archive, so that a component is transferred with one request instead of one request per file.
+ * Archive is a zip with component manifest as first entry, see {@link CompoManifest}, followed by component files. Since
+ * manifest comes first, archive can be unpacked while streamed, in a single pass, checking every file against manifest
+ * size and SHA-256 hash.
+ */
+public class CompoArchive {
+	/** Archive file name on repository component directory. */
+	public static final String FILE_NAME = ".component.zip";
+
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * Write component archive to output stream. Output stream is finished but not closed.
+	 *
+	 * @param stream output stream,
+	 * @param manifest component manifest,
+	 * @param compoFiles component files, the same listed by manifest.
+	 * @throws IOException if files reading or stream writing fails.
+	 */
+	public static void write(OutputStream stream, CompoManifest manifest, Collection<Path> compoFiles) throws IOException {
+		ZipOutputStream zip = new ZipOutputStream(stream);
+		// manifest save closes its writer; serialize it first to not close archive stream
+		StringWriter manifestWriter = new StringWriter();
+		manifest.save(manifestWriter);
+		zip.putNextEntry(new ZipEntry(CompoManifest.FILE_NAME));
+		zip.write(manifestWriter.toString().getBytes(StandardCharsets.UTF_8));
+		zip.closeEntry();
+
+		byte[] buffer = new byte[BUFFER_SIZE];
+		for (Path compoFile : compoFiles) {
+			zip.putNextEntry(new ZipEntry(compoFile.getFileName().toString()));
+			try (InputStream input = Files.newInputStream(compoFile)) {
+				int count;
+				while ((count = input.read(buffer)) != -1) {
+					zip.write(buffer, 0, count);
+				}
+			}
+			zip.closeEntry();
+		}
+		zip.finish();
+	}
+
+	/**
+	 * Unpack component archive into target directory while archive is streamed. Every file is written into a temporary file
+	 * and moved over target file only if size and hash match manifest. Manifest is written last, after all files are
+	 * unpacked. Input stream is not closed.
+	 *
+	 * @param stream archive input stream,
+	 * @param targetDir target directory.
+	 * @return component manifest.
+	 * @throws IOException if archive is not valid, a file does not match manifest or files writing fails.
+	 */
+	public static CompoManifest extract(InputStream stream, Path targetDir) throws IOException {
+		ZipInputStream zip = new ZipInputStream(stream);
+		ZipEntry zipEntry = zip.getNextEntry();
+		if (zipEntry == null || !CompoManifest.FILE_NAME.equals(zipEntry.getName())) {
+			throw new IOException("Invalid component archive: missing manifest entry.");
+		}
+		// previous manifest marks a completely unpacked archive; remove it until this archive is unpacked
+		Files.deleteIfExists(targetDir.resolve(CompoManifest.FILE_NAME));
+		byte[] manifestBytes = readEntry(zip);
+		CompoManifest manifest = CompoManifest.load(new InputStreamReader(new ByteArrayInputStream(manifestBytes), StandardCharsets.UTF_8));
+
+		Map<String, CompoManifest.FileEntry> entries = new HashMap<>();
+		for (CompoManifest.FileEntry entry : manifest.getFiles()) {
+			// file name is used as path on local file system; reject names with path separators
+			if (!CompoRepository.FILE_PATTERN.matcher(entry.getName()).matches()) {
+				throw new IOException(String.format("Invalid file name |%s| on component archive manifest.", entry.getName()));
+			}
+			entries.put(entry.getName(), entry);
+		}
+
+		byte[] buffer = new byte[BUFFER_SIZE];
+		while ((zipEntry = zip.getNextEntry()) != null) {
+			CompoManifest.FileEntry entry = entries.remove(zipEntry.getName());
+			if (entry == null) {
+				throw new IOException(String.format("Invalid component archive: entry |%s| not on manifest or duplicated.", zipEntry.getName()));
+			}
+
+			Path file = targetDir.resolve(entry.getName());
+			Path tempFile = targetDir.resolve("~" + entry.getName());
+			MessageDigest digest = CompoManifest.sha256();
+			long size = 0;
+			try {
+				try (OutputStream output = new DigestOutputStream(Files.newOutputStream(tempFile), digest)) {
+					int count;
+					while ((count = zip.read(buffer)) != -1) {
+						output.write(buffer, 0, count);
+						size += count;
+					}
+				}
+				String sha256 = CompoManifest.hex(digest.digest());
+				if (size != entry.getSize() || !sha256.equals(entry.getSha256())) {
+					throw new IOException(String.format("Integrity check failed for archive entry %s: expected SHA-256 %s but got %s.", entry.getName(), entry.getSha256(), sha256));
+				}
+				Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tempFile);
+			}
+		}
+		if (!entries.isEmpty()) {
+			throw new IOException(String.format("Invalid component archive: missing entries %s.", String.join(", ", entries.keySet())));
+		}
+
+		Files.write(targetDir.resolve(CompoManifest.FILE_NAME), manifestBytes);
+		return manifest;
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	private static byte[] readEntry(ZipInputStream zip) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int count;
+		while ((count = zip.read(buffer)) != -1) {
+			bytes.write(buffer, 0, count);
+		}
+		return bytes.toByteArray();
+	}
+}
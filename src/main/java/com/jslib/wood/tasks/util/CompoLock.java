@@ -0,0 +1,328 @@
+package com.jslib.wood.tasks.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.jslib.docore.repo.RepositoryCoordinates;
+
+/**
+ * Project lockfile with the components imported from repository: coordinates, project path and SHA-256 hash of every
+ * component file, as left by import. Lockfile is stored on project root and is meant to be versioned with project, so
+ * that imported components can be looked up by coordinates without scanning project and can be verified for local
+ * changes by hashing files only.
+ * <p>
+ * Lockfile is a text file with tab separated values, sorted by coordinates and file names for stable diffs. A
+ * <code>component</code> line with coordinates and project path is followed by <code>file</code> lines with file name and
+ * hash.
+ * <p>
+ * Tasks deleting, moving or renaming components update lockfile too, see {@link #remove(Path)} and
+ * {@link #move(Path, Path)}, so that locked paths follow components on project.
+ */
+public class CompoLock {
+	/** Lockfile name, on project root. */
+	public static final String FILE_NAME = "compos.lock";
+
+	/** Change kind for a file with content different from locked hash. */
+	public static final String MODIFIED = "modified";
+	/** Change kind for a locked file removed from project. */
+	public static final String MISSING = "missing";
+	/** Change kind for a file not present at import. */
+	public static final String ADDED = "added";
+
+	private static final String COMPONENT = "component";
+	private static final String FILE = "file";
+
+	private final Path file;
+	/** Locked components mapped by coordinates key. */
+	private final TreeMap<String, Entry> entries = new TreeMap<>();
+
+	private CompoLock(Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * Load project lockfile. Returns empty lock if project has no lockfile.
+	 *
+	 * @param projectDir project root directory.
+	 * @return project lock.
+	 * @throws IOException if lockfile reading fails or lockfile is not well formed.
+	 */
+	public static CompoLock load(Path projectDir) throws IOException {
+		CompoLock lock = new CompoLock(projectDir.resolve(FILE_NAME));
+		if (!Files.exists(lock.file)) {
+			return lock;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(lock.file, StandardCharsets.UTF_8)) {
+			Entry entry = null;
+			String line;
+			for (int lineNumber = 1; (line = reader.readLine()) != null; ++lineNumber) {
+				if (line.isEmpty()) {
+					continue;
+				}
+				String[] values = line.split("\t");
+				if (values.length == 3 && COMPONENT.equals(values[0])) {
+					entry = new Entry(values[1], values[2]);
+					lock.entries.put(entry.coordinates, entry);
+				} else if (values.length == 3 && FILE.equals(values[0]) && entry != null) {
+					entry.files.put(values[1], values[2]);
+				} else {
+					throw new IOException(String.format("Invalid lockfile %s at line %d.", lock.file, lineNumber));
+				}
+			}
+		}
+		return lock;
+	}
+
+	/**
+	 * Get locked component.
+	 *
+	 * @param coordinates component coordinates.
+	 * @return locked component or null if component is not locked.
+	 */
+	public Entry get(RepositoryCoordinates coordinates) {
+		return entries.get(key(coordinates));
+	}
+
+	/**
+	 * Find locked component by group and artifact, whatever its version.
+	 *
+	 * @param groupId component group ID,
+	 * @param artifactId component artifact ID.
+	 * @return locked component or null if no version of the component is locked.
+	 */
+	public Entry find(String groupId, String artifactId) {
+		String prefix = String.join(":", groupId, artifactId, "");
+		String key = entries.ceilingKey(prefix);
+		return key != null && key.startsWith(prefix) ? entries.get(key) : null;
+	}
+
+	public Collection<Entry> getEntries() {
+		return Collections.unmodifiableCollection(entries.values());
+	}
+
+	/**
+	 * Lock component imported on given project directory, hashing all its files. Replaces existing entry, if any.
+	 *
+	 * @param coordinates component coordinates,
+	 * @param projectDir project root directory,
+	 * @param compoDir project component directory.
+	 * @throws IOException if component files reading fails.
+	 */
+	public void put(RepositoryCoordinates coordinates, Path projectDir, Path compoDir) throws IOException {
+		Map<String, String> files = new TreeMap<>();
+		for (Path compoFile : listFiles(compoDir)) {
+			files.put(compoFile.getFileName().toString(), CompoManifest.sha256(compoFile));
+		}
+		put(coordinates, projectDir.relativize(compoDir).toString().replace('\\', '/'), files);
+	}
+
+	/**
+	 * Lock component with already known files hash. Replaces existing entry, if any.
+	 *
+	 * @param coordinates component coordinates,
+	 * @param path project relative component path, slash separated,
+	 * @param files files hash mapped by file name.
+	 */
+	public void put(RepositoryCoordinates coordinates, String path, Map<String, String> files) {
+		Entry entry = new Entry(key(coordinates), path);
+		entry.files.putAll(files);
+		entries.put(entry.coordinates, entry);
+	}
+
+	public void remove(Entry entry) {
+		entries.remove(entry.coordinates);
+	}
+
+	/**
+	 * Remove components locked on given project directory or under it, for components deleted from project.
+	 *
+	 * @param dir project directory.
+	 * @return true if any component was removed.
+	 */
+	public boolean remove(Path dir) {
+		String path = path(dir);
+		return entries.values().removeIf(entry -> isPrefix(path, entry.path));
+	}
+
+	/**
+	 * Update path of the components locked on given project directory or under it, for components moved or renamed on
+	 * project. If component from given directory is renamed, its files named after component are renamed too, the same as
+	 * rename task does; locked hashes are preserved.
+	 *
+	 * @param dir project directory,
+	 * @param newDir new project directory.
+	 * @return true if any component was updated.
+	 */
+	public boolean move(Path dir, Path newDir) {
+		String path = path(dir);
+		String newPath = path(newDir);
+		String compoName = name(path);
+		String newname = name(newPath);
+		boolean renamed = !compoName.equals(newname);
+
+		List<Entry> movedEntries = new ArrayList<>();
+		for (Entry entry : entries.values()) {
+			if (!isPrefix(path, entry.path)) {
+				continue;
+			}
+			Entry movedEntry = new Entry(entry.coordinates, newPath + entry.path.substring(path.length()));
+			entry.files.forEach((fileName, sha256) -> {
+				int extensionSeparator = fileName.lastIndexOf('.');
+				if (renamed && entry.path.equals(path) && extensionSeparator != -1 && fileName.substring(0, extensionSeparator).equals(compoName)) {
+					fileName = newname + fileName.substring(extensionSeparator);
+				}
+				movedEntry.files.put(fileName, sha256);
+			});
+			movedEntries.add(movedEntry);
+		}
+		movedEntries.forEach(entry -> entries.put(entry.coordinates, entry));
+		return !movedEntries.isEmpty();
+	}
+
+	/**
+	 * Save lockfile into temporary file then atomically replace lockfile.
+	 *
+	 * @throws IOException if file writing fails.
+	 */
+	public void save() throws IOException {
+		Path tempFile = file.resolveSibling("~" + FILE_NAME);
+		try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+			write(writer);
+		}
+		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Save lockfile as part of a refactoring transaction, so that it is rolled back together with project files. Lockfile
+	 * should exist.
+	 *
+	 * @param transaction refactoring transaction.
+	 * @throws IOException if file writing fails.
+	 */
+	public void save(FileTransaction transaction) throws IOException {
+		transaction.rewrite((lockFile, content, output) -> {
+			BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+			write(writer);
+			// output stream is closed by transaction
+			writer.flush();
+			return 1;
+		}, Collections.singletonList(file));
+	}
+
+	/**
+	 * List regular files from component directory, the same files recorded by {@link #put(RepositoryCoordinates, Path, Path)}.
+	 *
+	 * @param compoDir project component directory.
+	 * @return component files.
+	 * @throws IOException if directory listing fails.
+	 */
+	public static Collection<Path> listFiles(Path compoDir) throws IOException {
+		try (Stream<Path> stream = Files.list(compoDir)) {
+			return stream.filter(Files::isRegularFile).collect(Collectors.toList());
+		}
+	}
+
+	private void write(BufferedWriter writer) throws IOException {
+		for (Entry entry : entries.values()) {
+			writer.write(String.join("\t", COMPONENT, entry.coordinates, entry.path));
+			writer.newLine();
+			for (Map.Entry<String, String> file : entry.files.entrySet()) {
+				writer.write(String.join("\t", FILE, file.getKey(), file.getValue()));
+				writer.newLine();
+			}
+		}
+	}
+
+	/** Project relative path, slash separated. */
+	private String path(Path dir) {
+		return file.getParent().relativize(dir).toString().replace('\\', '/');
+	}
+
+	private static boolean isPrefix(String prefix, String path) {
+		return path.equals(prefix) || path.startsWith(prefix + '/');
+	}
+
+	private static String name(String path) {
+		return path.substring(path.lastIndexOf('/') + 1);
+	}
+
+	private static String key(RepositoryCoordinates coordinates) {
+		return String.join(":", coordinates.getGroupId(), coordinates.getArtifactId(), coordinates.getVersion());
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Locked component.
+	 */
+	public static class Entry {
+		private final String coordinates;
+		private final String path;
+		/** Files hash mapped by file name. */
+		private final Map<String, String> files = new TreeMap<>();
+
+		private Entry(String coordinates, String path) {
+			this.coordinates = coordinates;
+			this.path = path;
+		}
+
+		public String getCoordinates() {
+			return coordinates;
+		}
+
+		/** Project relative component path, slash separated. */
+		public String getPath() {
+			return path;
+		}
+
+		public Map<String, String> getFiles() {
+			return Collections.unmodifiableMap(files);
+		}
+
+		/**
+		 * Compare component files from project against locked hashes. Returns changed files mapped to change kind:
+		 * {@link #MODIFIED}, {@link #MISSING} or {@link #ADDED}; returned map is empty if component is unchanged since
+		 * import. If component directory is missing all locked files are reported missing.
+		 *
+		 * @param projectDir project root directory.
+		 * @return changed files, sorted by name, possible empty.
+		 * @throws IOException if component files reading fails.
+		 */
+		public Map<String, String> getChanges(Path projectDir) throws IOException {
+			Map<String, String> changes = new TreeMap<>();
+			Path compoDir = projectDir.resolve(path);
+			if (!Files.isDirectory(compoDir)) {
+				files.keySet().forEach(fileName -> changes.put(fileName, MISSING));
+				return changes;
+			}
+			Map<String, Path> compoFiles = new TreeMap<>();
+			for (Path compoFile : listFiles(compoDir)) {
+				compoFiles.put(compoFile.getFileName().toString(), compoFile);
+			}
+			for (Map.Entry<String, String> file : files.entrySet()) {
+				Path compoFile = compoFiles.remove(file.getKey());
+				if (compoFile == null) {
+					changes.put(file.getKey(), MISSING);
+				} else if (!file.getValue().equals(CompoManifest.sha256(compoFile))) {
+					changes.put(file.getKey(), MODIFIED);
+				}
+			}
+			compoFiles.keySet().forEach(fileName -> changes.put(fileName, ADDED));
+			return changes;
+		}
+	}
+}
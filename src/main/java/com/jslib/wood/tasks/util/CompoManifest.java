@@ -0,0 +1,168 @@
+package com.jslib.wood.tasks.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.jslib.docore.repo.RepositoryCoordinates;
+
+import js.json.Json;
+import js.util.Classes;
+
+/**
+ * Machine readable component manifest, published on repository next to component files. Lists component files with
+ * their sizes and SHA-256 hashes and component dependencies, so that import needs a single small request to discover
+ * component content, instead of scraping repository directory listing, and can check downloaded files integrity.
+ * <p>
+ * Manifest is a JSON object with <code>groupId</code>, <code>artifactId</code>, <code>version</code>,
+ * <code>dependencies</code> as coordinates strings and <code>files</code> as objects with <code>name</code>,
+ * <code>size</code> and <code>sha256</code>.
+ */
+public class CompoManifest {
+	/** Manifest file name on repository component directory. */
+	public static final String FILE_NAME = ".manifest.json";
+
+	private static final Json json = Classes.loadService(Json.class);
+
+	private String groupId;
+	private String artifactId;
+	private String version;
+	private String[] dependencies;
+	private FileEntry[] files;
+
+	/**
+	 * Create manifest for component files, computing files hash.
+	 *
+	 * @param coordinates component coordinates,
+	 * @param dependencies component dependencies, possible empty,
+	 * @param compoFiles component files.
+	 * @return component manifest.
+	 * @throws IOException if files reading fails.
+	 */
+	public static CompoManifest create(RepositoryCoordinates coordinates, Collection<RepositoryCoordinates> dependencies, Collection<Path> compoFiles) throws IOException {
+		CompoManifest manifest = new CompoManifest();
+		manifest.groupId = coordinates.getGroupId();
+		manifest.artifactId = coordinates.getArtifactId();
+		manifest.version = coordinates.getVersion();
+		manifest.dependencies = dependencies.stream().map(RepositoryCoordinates::toString).toArray(String[]::new);
+
+		List<FileEntry> entries = new ArrayList<>();
+		for (Path file : compoFiles) {
+			FileEntry entry = new FileEntry();
+			entry.name = file.getFileName().toString();
+			entry.size = Files.size(file);
+			entry.sha256 = sha256(file);
+			entries.add(entry);
+		}
+		manifest.files = entries.toArray(new FileEntry[0]);
+		return manifest;
+	}
+
+	public static CompoManifest load(Reader reader) throws IOException {
+		try (Reader manifestReader = reader) {
+			CompoManifest manifest = json.parse(manifestReader, CompoManifest.class);
+			if (manifest == null || manifest.files == null) {
+				throw new IOException("Invalid component manifest: missing files list.");
+			}
+			return manifest;
+		}
+	}
+
+	public void save(Writer writer) throws IOException {
+		try (Writer manifestWriter = writer) {
+			json.stringify(manifestWriter, this);
+		}
+	}
+
+	public RepositoryCoordinates getCoordinates() {
+		return new RepositoryCoordinates(groupId, artifactId, version);
+	}
+
+	public List<RepositoryCoordinates> getDependencies() {
+		List<RepositoryCoordinates> list = new ArrayList<>();
+		if (dependencies != null) {
+			for (String dependency : dependencies) {
+				list.add(RepositoryCoordinates.parse(dependency));
+			}
+		}
+		return list;
+	}
+
+	public FileEntry[] getFiles() {
+		return files;
+	}
+
+	/**
+	 * Compute file content SHA-256 hash, as lower case hexadecimal.
+	 *
+	 * @param file file to hash.
+	 * @return file hash.
+	 * @throws IOException if file reading fails.
+	 */
+	public static String sha256(Path file) throws IOException {
+		MessageDigest digest = sha256();
+		try (InputStream input = new DigestInputStream(Files.newInputStream(file), digest)) {
+			byte[] buffer = new byte[8192];
+			while (input.read(buffer) != -1) {
+			}
+		}
+		return hex(digest.digest());
+	}
+
+	/**
+	 * Create SHA-256 message digest, for hashing content while streamed.
+	 *
+	 * @return new message digest.
+	 */
+	public static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// SHA-256 is mandatory for all Java platforms
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Format hash bytes as lower case hexadecimal, the form used by manifest.
+	 *
+	 * @param bytes hash bytes.
+	 * @return hexadecimal hash.
+	 */
+	public static String hex(byte[] bytes) {
+		StringBuilder builder = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return builder.toString();
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	public static class FileEntry {
+		private String name;
+		private long size;
+		private String sha256;
+
+		public String getName() {
+			return name;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public String getSha256() {
+			return sha256;
+		}
+	}
+}
@@ -0,0 +1,439 @@
+package com.jslib.wood.tasks.util;
+
+import static java.lang.String.format;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.xml.xpath.XPathExpressionException;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.xml.sax.SAXException;
+
+import com.jslib.docore.IFiles;
+import com.jslib.docore.IHttpRequest;
+import com.jslib.docore.repo.RepositoryCoordinates;
+import com.jslib.dospi.IShell;
+import com.jslib.dospi.TaskAbortException;
+
+import js.dom.Document;
+import js.dom.Element;
+import js.log.Log;
+import js.log.LogFactory;
+import js.util.Strings;
+import js.wood.WoodException;
+
+/**
+ * Local components repository, used as cache for remote repository. Components are stored on directories with paths
+ * derived from component coordinates and are downloaded from remote repository on first use, see
+ * {@link #getCompoDependencies(RepositoryCoordinates)}.
+ * <p>
+ * On offline mode remote repository is never accessed: missing components are recorded, see {@link #getMissing()}, and
+ * treated as having no dependencies, so that dependencies resolution can continue and report all missing components at
+ * once.
+ * <p>
+ * Repository keeps HTTP connections and download workers across components and should be closed after use.
+ */
+public class CompoRepository implements AutoCloseable {
+	private static final Log log = LogFactory.getLog(CompoRepository.class);
+
+	static final Pattern FILE_PATTERN = Pattern.compile("^[a-z0-9_.\\-]+\\.[a-z0-9]+$", Pattern.CASE_INSENSITIVE);
+
+	private final IShell shell;
+	private final IFiles files;
+	private final IHttpRequest httpRequest;
+	private final HttpClientBuilder clientBuilder;
+	private final TaskContext context;
+
+	private final Path repositoryDir;
+	private final ContentStore store;
+	/** Components missing from local repository, recorded on offline mode. */
+	private final Set<String> missing = ConcurrentHashMap.newKeySet();
+
+	private boolean reload;
+	private boolean offline;
+
+	/** HTTP client and downloader are created on first download and shared by all components, see {@link #close()}. */
+	private CloseableHttpClient client;
+	private ConcurrentDownloader downloader;
+
+	public CompoRepository(IShell shell, IFiles files, IHttpRequest httpRequest, HttpClientBuilder clientBuilder, TaskContext context) throws TaskAbortException {
+		this.shell = shell;
+		this.files = files;
+		this.httpRequest = httpRequest;
+		this.clientBuilder = clientBuilder;
+		this.context = context;
+		this.repositoryDir = files.getPath(context.getex("repository.dir"));
+		this.store = new ContentStore(repositoryDir, context.get("repository.import.links", boolean.class, "false"));
+	}
+
+	public void setReload(boolean reload) {
+		this.reload = reload;
+	}
+
+	public void setOffline(boolean offline) {
+		this.offline = offline;
+	}
+
+	public ContentStore getStore() {
+		return store;
+	}
+
+	/**
+	 * Get the components found missing from local repository while on offline mode, sorted by coordinates.
+	 *
+	 * @return missing components coordinates, possible empty.
+	 */
+	public Set<String> getMissing() {
+		return new TreeSet<>(missing);
+	}
+
+	/**
+	 * Get the directory path from local components repository (cache) that contains component identified by given
+	 * coordinates.
+	 *
+	 * @param coordinates component coordinates.
+	 * @return component repository directory.
+	 */
+	public Path getCompoDir(RepositoryCoordinates coordinates) {
+		return repositoryDir.resolve(coordinates.toFilePath());
+	}
+
+	/**
+	 * Get dependencies declared on component descriptor for component identified by its coordinates. If requested component
+	 * does not exist on local repository takes care to download it. If {@link #reload} flag is set on command options,
+	 * revalidate local cache: only files changed on repository are downloaded again.
+	 * <p>
+	 * On offline mode a component missing from local repository is recorded and returns no dependencies.
+	 *
+	 * @param coordinates component coordinates.
+	 * @return dependencies list, possible empty if there are no dependencies declared on component descriptor.
+	 * @throws IOException if a file system operation fails.
+	 * @throws XPathExpressionException if there are internal XPath syntax error.
+	 * @throws SAXException if downloaded document is not well formed.
+	 * @throws TaskAbortException
+	 */
+	public List<RepositoryCoordinates> getCompoDependencies(RepositoryCoordinates coordinates) throws IOException, XPathExpressionException, SAXException, TaskAbortException {
+		Path compoDir = getCompoDir(coordinates);
+		Path descriptorFile = compoDir.resolve(coordinates.getArtifactId() + ".xml");
+		if (offline) {
+			if (!files.exists(descriptorFile)) {
+				log.warn("Component %s missing from local repository.", coordinates);
+				missing.add(coordinates.toString());
+				return Collections.emptyList();
+			}
+		} else if (reload || !files.exists(descriptorFile)) {
+			// this method is invoked concurrently by dependencies resolver; do not change shared reload flag
+			// test descriptor instead of component directory so that a component left partially downloaded is fetched again
+			files.createDirectories(compoDir);
+			downloadCompoment(coordinates, compoDir);
+		}
+
+		if (!files.exists(descriptorFile)) {
+			throw new WoodException("Missing component descriptor %s.", descriptorFile);
+		}
+		return DescriptorHeader.read(descriptorFile, true).getDependencies();
+	}
+
+	/**
+	 * Ensure components and all their transitive dependencies are on local repository, downloading missing ones. Components
+	 * are fetched concurrently, as soon as discovered; unlike import, there is no version conflicts check since fetched
+	 * components are not installed. A component that fails to download does not stop the others.
+	 *
+	 * @param roots coordinates of the components to fetch,
+	 * @param threads number of concurrent component downloads.
+	 * @return coordinates of the components that failed to download, mapped to failure message; empty on success.
+	 * @throws IOException if prefetch is interrupted.
+	 */
+	public Map<String, String> prefetch(Collection<RepositoryCoordinates> roots, int threads) throws IOException {
+		Map<String, String> failures = new LinkedHashMap<>();
+		Set<String> discovered = new HashSet<>();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			CompletionService<List<RepositoryCoordinates>> completion = new ExecutorCompletionService<>(executor);
+			// future results do not carry coordinates; keep them on a map keyed by future identity
+			Map<Future<List<RepositoryCoordinates>>, RepositoryCoordinates> submitted = new ConcurrentHashMap<>();
+			int pending = 0;
+			for (RepositoryCoordinates root : roots) {
+				if (discovered.add(root.toString())) {
+					submitted.put(completion.submit(() -> getCompoDependencies(root)), root);
+					++pending;
+				}
+			}
+
+			for (; pending > 0; --pending) {
+				Future<List<RepositoryCoordinates>> future = completion.take();
+				RepositoryCoordinates coordinates = submitted.remove(future);
+				List<RepositoryCoordinates> dependencies;
+				try {
+					dependencies = future.get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					log.warn("Fail to fetch component %s: %s.", coordinates, cause);
+					failures.put(coordinates.toString(), String.valueOf(cause.getMessage()));
+					continue;
+				}
+				for (RepositoryCoordinates dependency : dependencies) {
+					if (discovered.add(dependency.toString())) {
+						submitted.put(completion.submit(() -> getCompoDependencies(dependency)), dependency);
+						++pending;
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Components prefetch interrupted.");
+		} finally {
+			executor.shutdownNow();
+		}
+
+		log.info("Fetched %d components, %d failed.", discovered.size() - failures.size(), failures.size());
+		return failures;
+	}
+
+	/** Release HTTP connections and downloader workers, if created. */
+	@Override
+	public synchronized void close() throws IOException {
+		if (downloader != null) {
+			downloader.close();
+			downloader = null;
+		}
+		if (client != null) {
+			client.close();
+			client = null;
+		}
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	private synchronized CloseableHttpClient client() {
+		if (client == null) {
+			int threads = context.get("repository.download.threads", int.class, "8");
+			int hostConnections = context.get("repository.download.host.connections", int.class, "4");
+			client = clientBuilder.setMaxConnTotal(threads).setMaxConnPerRoute(hostConnections).build();
+		}
+		return client;
+	}
+
+	private synchronized ConcurrentDownloader downloader() {
+		if (downloader == null) {
+			int threads = context.get("repository.download.threads", int.class, "8");
+			int hostConnections = context.get("repository.download.host.connections", int.class, "4");
+			int retries = context.get("repository.download.retries", int.class, "3");
+			downloader = new ConcurrentDownloader(threads, hostConnections, retries);
+		}
+		return downloader;
+	}
+
+	/**
+	 * Download component files from repository into target directory. If repository has component archive, see
+	 * {@link CompoArchive}, component is downloaded with a single request and unpacked while streamed. Otherwise component
+	 * files are listed by component manifest,
+	 * see {@link CompoManifest}; if repository has no manifest for component, this method assume repository server is
+	 * configured with page indexing and scan all links from directory index matching {@link #FILE_PATTERN}.
+	 * <p>
+	 * Files are downloaded concurrently, see {@link ConcurrentDownloader}. If manifest is present, files with cached hash
+	 * equal to manifest hash are not requested at all and downloaded files are checked against manifest hash. Otherwise
+	 * cached files are revalidated with conditional requests and downloaded only if changed. Validators are stored next to
+	 * cached files, see {@link CacheValidators}.
+	 *
+	 * @param targetDir target directory.
+	 * @throws IOException if download fails for whatever reason.
+	 * @throws SAXException
+	 * @throws XPathExpressionException
+	 * @throws TaskAbortException
+	 */
+	private void downloadCompoment(RepositoryCoordinates coordinates, Path targetDir) throws IOException, SAXException, XPathExpressionException, TaskAbortException {
+		URI compoURI = URI.create((format("%s/%s/", context.getex("repository.url"), coordinates.toFilePath())));
+
+		CacheValidators validators = CacheValidators.load(targetDir);
+		ConditionalFetcher fetcher = new ConditionalFetcher(client());
+		if (downloadArchive(fetcher, compoURI, targetDir, validators)) {
+			return;
+		}
+
+		Set<Path> repositoryFiles;
+		try {
+
+			Map<URI, Path> downloads = new LinkedHashMap<>();
+			// expected files hash mapped by file name, empty if repository has no manifest
+			Map<String, String> hashes = new HashMap<>();
+			// expected files size mapped by URI, null if repository has no manifest
+			Map<URI, Long> sizes = null;
+			CompoManifest manifest = loadManifest(fetcher, compoURI, targetDir, validators);
+			if (manifest != null) {
+				sizes = new HashMap<>();
+				for (CompoManifest.FileEntry entry : manifest.getFiles()) {
+					// file name is used as path on local file system; reject names with path separators
+					if (!FILE_PATTERN.matcher(entry.getName()).matches()) {
+						throw new IOException(format("Invalid file name |%s| on component %s manifest.", entry.getName(), coordinates));
+					}
+					downloads.put(compoURI.resolve(entry.getName()), targetDir.resolve(entry.getName()));
+					hashes.put(entry.getName(), entry.getSha256());
+					sizes.put(compoURI.resolve(entry.getName()), entry.getSize());
+				}
+			} else {
+				Document indexPageDoc = httpRequest.loadHTML(compoURI);
+				for (Element linkElement : indexPageDoc.findByXPath("//*[@href]")) {
+					String link = linkElement.getAttr("href");
+					Matcher matcher = FILE_PATTERN.matcher(link);
+					if (matcher.find()) {
+						downloads.put(compoURI.resolve(link), targetDir.resolve(Strings.last(link, '/')));
+					}
+				}
+			}
+
+			// remove cached files no longer present on repository
+			repositoryFiles = new HashSet<>(downloads.values());
+			for (Path file : files.listFiles(targetDir)) {
+				if (!files.getFileName(file).startsWith(".") && !repositoryFiles.contains(file)) {
+					log.info("Remove file %s.", file);
+					files.delete(file);
+				}
+			}
+			Set<String> fileNames = repositoryFiles.stream().map(files::getFileName).collect(Collectors.toSet());
+			fileNames.add(CompoManifest.FILE_NAME);
+			validators.retain(fileNames);
+
+			ConcurrentDownloader.Fetcher conditionalFetch = (uri, file, tempFile) -> {
+				String fileName = files.getFileName(file);
+				CacheValidators.Validator cached = files.exists(file) ? validators.get(fileName) : null;
+				String expectedHash = hashes.get(fileName);
+				if (expectedHash != null && cached != null) {
+					if (expectedHash.equals(cached.getSha256())) {
+						log.debug("File %s up to date with manifest.", uri);
+						return false;
+					}
+					// cached file does not match manifest; conditional request could wrongly report it not modified
+					cached = null;
+				}
+				CacheValidators.Validator validator = fetcher.fetch(uri, tempFile, cached);
+				if (validator == null) {
+					log.debug("File %s not changed.", uri);
+					return false;
+				}
+				if (expectedHash != null && !expectedHash.equals(validator.getSha256())) {
+					throw new IOException(format("Integrity check failed for %s: expected SHA-256 %s but got %s.", uri, expectedHash, validator.getSha256()));
+				}
+				validators.put(fileName, validator);
+				return true;
+			};
+			// progress in bytes if manifest gives files size, otherwise in files count
+			long total = sizes != null ? sizes.values().stream().mapToLong(Long::longValue).sum() : downloads.size();
+			downloader().download(downloads, sizes, conditionalFetch, shell.getProgress(total));
+		} finally {
+			// validators of the files downloaded before a failure are still valid
+			validators.save();
+		}
+
+		// replace downloaded files with links to content store; files not changed are already linked
+		for (Path file : repositoryFiles) {
+			CacheValidators.Validator validator = validators.get(files.getFileName(file));
+			if (validator != null && validator.getSha256() != null) {
+				store.intern(file, validator.getSha256());
+			}
+		}
+	}
+
+	/**
+	 * Download component archive and unpack it into target directory, using conditional request if archive was already
+	 * unpacked. Validators of the unpacked files keep only the hash, from archive manifest, so that a later per-file
+	 * download does not request them if not changed. Returns false if repository has no archive for component, e.g.
+	 * component exported before archive introduction.
+	 *
+	 * @return true if component is up to date with repository archive.
+	 * @throws IOException if download or unpacking fails.
+	 */
+	private boolean downloadArchive(ConditionalFetcher fetcher, URI compoURI, Path targetDir, CacheValidators validators) throws IOException {
+		// manifest is written last on unpack; if missing archive was not completely unpacked
+		CacheValidators.Validator cached = files.exists(targetDir.resolve(CompoManifest.FILE_NAME)) ? validators.get(CompoArchive.FILE_NAME) : null;
+		AtomicReference<CompoManifest> manifest = new AtomicReference<>();
+		CacheValidators.Validator validator;
+		try {
+			validator = fetcher.fetch(compoURI.resolve(CompoArchive.FILE_NAME), input -> manifest.set(CompoArchive.extract(input, targetDir)), cached);
+		} catch (FileNotFoundException e) {
+			log.debug("Missing archive for %s. Download component files.", compoURI);
+			return false;
+		}
+		if (validator == null) {
+			log.debug("Component archive %s not changed.", compoURI);
+			return true;
+		}
+
+		// remove cached files no longer present on repository
+		Set<String> fileNames = new HashSet<>();
+		for (CompoManifest.FileEntry entry : manifest.get().getFiles()) {
+			fileNames.add(entry.getName());
+		}
+		for (Path file : files.listFiles(targetDir)) {
+			String fileName = files.getFileName(file);
+			if (!fileName.startsWith(".") && !fileNames.contains(fileName)) {
+				log.info("Remove file %s.", file);
+				files.delete(file);
+			}
+		}
+
+		// unpacked manifest has no validators of its own; drop them so that manifest is fetched again if archive is removed
+		validators.retain(Collections.singleton(CompoArchive.FILE_NAME));
+		validators.put(CompoArchive.FILE_NAME, validator);
+		for (CompoManifest.FileEntry entry : manifest.get().getFiles()) {
+			validators.put(entry.getName(), new CacheValidators.Validator(null, null, entry.getSha256()));
+			store.intern(targetDir.resolve(entry.getName()), entry.getSha256());
+		}
+		validators.save();
+		return true;
+	}
+
+	/**
+	 * Load component manifest from repository, using conditional request if manifest is cached. Returns null if
+	 * repository has no manifest for component, e.g. component exported before manifest introduction.
+	 *
+	 * @return component manifest, possible null.
+	 */
+	private CompoManifest loadManifest(ConditionalFetcher fetcher, URI compoURI, Path targetDir, CacheValidators validators) throws IOException {
+		Path manifestFile = targetDir.resolve(CompoManifest.FILE_NAME);
+		Path tempFile = targetDir.resolve("~" + CompoManifest.FILE_NAME);
+		try {
+			CacheValidators.Validator validator = fetcher.fetch(compoURI.resolve(CompoManifest.FILE_NAME), tempFile, files.exists(manifestFile) ? validators.get(CompoManifest.FILE_NAME) : null);
+			if (validator != null) {
+				Files.move(tempFile, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				validators.put(CompoManifest.FILE_NAME, validator);
+			}
+		} catch (FileNotFoundException e) {
+			log.debug("Missing manifest for %s. Scan repository directory index.", compoURI);
+			files.deleteIfExists(manifestFile);
+			return null;
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+		return CompoManifest.load(Files.newBufferedReader(manifestFile, StandardCharsets.UTF_8));
+	}
+}
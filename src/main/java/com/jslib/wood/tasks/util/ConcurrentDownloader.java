@@ -0,0 +1,186 @@
+package com.jslib.wood.tasks.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.jslib.docore.IProgress;
+
+import js.log.Log;
+import js.log.LogFactory;
+
+/**
+ * Download many files concurrently, on a bounded worker pool. Connections per host are limited with a semaphore per host,
+ * so that a large component does not flood repository server. Failed downloads are retried with exponential backoff and
+ * jitter; missing files, reported as {@link FileNotFoundException}, are not retried.
+ * <p>
+ * Every file is downloaded to a temporary sibling file, prefixed with tilde, and renamed to target file only after download
+ * completes, so that target file is never left partially written. If any file fails, pending downloads are cancelled and
+ * the failure is propagated.
+ * <p>
+ * Actual transfer is delegated to a {@link Fetcher} that can skip files not changed on server, e.g. using conditional
+ * requests; skipped files are left untouched.
+ */
+public class ConcurrentDownloader implements AutoCloseable {
+	private static final Log log = LogFactory.getLog(ConcurrentDownloader.class);
+
+	/** Backoff delay before first retry, doubled on every retry. */
+	private static final long BACKOFF_MILLIS = 500;
+
+	private final int hostConnections;
+	private final int retries;
+	private final ExecutorService executor;
+	/** Connection permits mapped by host. */
+	private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+	/**
+	 * Create downloader instance.
+	 *
+	 * @param threads worker pool size,
+	 * @param hostConnections maximum concurrent connections per host,
+	 * @param retries number of retries after a failed download.
+	 */
+	public ConcurrentDownloader(int threads, int hostConnections, int retries) {
+		this.hostConnections = hostConnections;
+		this.retries = retries;
+		AtomicInteger threadIndex = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "Downloader-" + threadIndex.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Download files and wait for all to complete. If files size is known, progress is measured in bytes, the same as
+	 * runtime files download, so that progress reflects transfer throughput; every completed file advances progress with its
+	 * size, skipped files included, so that progress reaches the total of all sizes. Otherwise progress is the number of
+	 * completed files. Overall throughput is also logged at the end. This method can be invoked concurrently, in which case
+	 * all downloads share the worker pool and host connections limit.
+	 *
+	 * @param downloads target files mapped by source URI,
+	 * @param sizes expected files size mapped by source URI, null if not known,
+	 * @param fetcher fetcher for individual files, should be thread safe,
+	 * @param progress progress listener for completed bytes or files count, null if not used.
+	 * @throws IOException if any download fails after all retries.
+	 */
+	public void download(Map<URI, Path> downloads, Map<URI, Long> sizes, Fetcher fetcher, IProgress<Long> progress) throws IOException {
+		long start = System.nanoTime();
+		AtomicLong completed = new AtomicLong();
+		AtomicLong completedFiles = new AtomicLong();
+		AtomicLong downloadedFiles = new AtomicLong();
+		AtomicLong downloadedBytes = new AtomicLong();
+
+		List<Future<?>> futures = new ArrayList<>();
+		downloads.forEach((uri, file) -> futures.add(executor.submit(() -> {
+			long size = -1;
+			if (download(fetcher, uri, file)) {
+				size = Files.size(file);
+				downloadedFiles.incrementAndGet();
+				downloadedBytes.addAndGet(size);
+			}
+			completedFiles.incrementAndGet();
+			if (sizes == null) {
+				size = 1;
+			} else if (size == -1) {
+				size = sizes.getOrDefault(uri, 0L);
+			}
+			long value = completed.addAndGet(size);
+			if (progress != null) {
+				progress.onProgress(value);
+			}
+			return null;
+		})));
+
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			futures.forEach(future -> future.cancel(true));
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
+		} catch (InterruptedException e) {
+			futures.forEach(future -> future.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Download interrupted.");
+		}
+
+		double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+		log.info("Downloaded %d files, %d bytes in %.2f seconds: %.1f KB/s. %d files not changed.", downloadedFiles.get(), downloadedBytes.get(), seconds, downloadedBytes.get() / 1024.0 / seconds, completedFiles.get() - downloadedFiles.get());
+	}
+
+	/** Shutdown worker pool; pending downloads are cancelled. */
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/** Download file with retries; returns false if fetcher skipped file. */
+	private boolean download(Fetcher fetcher, URI uri, Path file) throws IOException, InterruptedException {
+		Semaphore permits = hostPermits.computeIfAbsent(String.valueOf(uri.getHost()), host -> new Semaphore(hostConnections));
+		Path tempFile = file.resolveSibling("~" + file.getFileName());
+		for (int attempt = 0;; ++attempt) {
+			permits.acquire();
+			try {
+				log.info("Download file %s.", uri);
+				if (!fetcher.fetch(uri, file, tempFile)) {
+					return false;
+				}
+				Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				return true;
+			} catch (IOException e) {
+				Files.deleteIfExists(tempFile);
+				if (e instanceof FileNotFoundException || attempt == retries) {
+					throw e;
+				}
+				log.warn("Fail to download %s: %s. Retry.", uri, e.getMessage());
+			} finally {
+				permits.release();
+			}
+			// host permit is released while waiting, for other downloads to proceed
+			long backoff = BACKOFF_MILLIS << attempt;
+			Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+		}
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Transfer of a single file.
+	 */
+	@FunctionalInterface
+	public interface Fetcher {
+		/**
+		 * Fetch remote file into temporary file, or skip it if target file is up to date.
+		 *
+		 * @param uri remote file URI,
+		 * @param file target file, possible already existing,
+		 * @param tempFile temporary file to write content to.
+		 * @return true if content was written to temporary file, false if file was skipped.
+		 * @throws IOException if transfer fails.
+		 */
+		boolean fetch(URI uri, Path file, Path tempFile) throws IOException;
+	}
+}
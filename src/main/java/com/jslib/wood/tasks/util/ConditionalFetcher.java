@@ -0,0 +1,128 @@
+package com.jslib.wood.tasks.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+
+/**
+ * HTTP GET with conditional revalidation. If cached file validators are known, request is sent with
+ * <code>If-None-Match</code> and <code>If-Modified-Since</code> headers and server responds with 304 if file was not
+ * changed, in which case no content is transferred. On full response returns the new validators, including content hash
+ * computed while content is streamed to file.
+ */
+public class ConditionalFetcher {
+	private final CloseableHttpClient client;
+
+	/**
+	 * Create fetcher instance.
+	 *
+	 * @param client HTTP client, should be thread safe if fetcher is used concurrently.
+	 */
+	public ConditionalFetcher(CloseableHttpClient client) {
+		this.client = client;
+	}
+
+	/**
+	 * Fetch remote file if changed since cached validators.
+	 *
+	 * @param uri remote file URI,
+	 * @param file target file, written only if remote file was changed,
+	 * @param cached cached file validators, null if file is not cached.
+	 * @return new validators or null if remote file was not changed.
+	 * @throws FileNotFoundException if remote file does not exist,
+	 * @throws IOException if request fails.
+	 */
+	public CacheValidators.Validator fetch(URI uri, Path file, CacheValidators.Validator cached) throws IOException {
+		CacheValidators.Validator validator = fetch(uri, input -> {
+			try (OutputStream output = Files.newOutputStream(file)) {
+				byte[] buffer = new byte[8192];
+				int count;
+				while ((count = input.read(buffer)) != -1) {
+					output.write(buffer, 0, count);
+				}
+			}
+		}, cached);
+		if (validator != null && cached != null && validator.getSha256().equals(cached.getSha256()) && !cached.isConditional()) {
+			// server does not support validators; content was transferred but is not changed
+			Files.delete(file);
+			return null;
+		}
+		return validator;
+	}
+
+	/**
+	 * Fetch remote file if changed since cached validators, passing content to handler while it is streamed. Content hash
+	 * is computed on the whole content, including bytes not consumed by handler.
+	 *
+	 * @param uri remote file URI,
+	 * @param handler content handler, invoked only if remote file was changed,
+	 * @param cached cached file validators, null if file is not cached.
+	 * @return new validators or null if remote file was not changed.
+	 * @throws FileNotFoundException if remote file does not exist,
+	 * @throws IOException if request or content handler fails.
+	 */
+	public CacheValidators.Validator fetch(URI uri, ContentHandler handler, CacheValidators.Validator cached) throws IOException {
+		HttpGet httpGet = new HttpGet(uri);
+		if (cached != null) {
+			if (cached.getEtag() != null) {
+				httpGet.setHeader(HttpHeaders.IF_NONE_MATCH, cached.getEtag());
+			}
+			if (cached.getLastModified() != null) {
+				httpGet.setHeader(HttpHeaders.IF_MODIFIED_SINCE, cached.getLastModified());
+			}
+		}
+
+		try (CloseableHttpResponse response = client.execute(httpGet)) {
+			int statusCode = response.getStatusLine().getStatusCode();
+			if (statusCode == HttpStatus.SC_NOT_MODIFIED) {
+				return null;
+			}
+			if (statusCode == HttpStatus.SC_NOT_FOUND) {
+				throw new FileNotFoundException(uri.toString());
+			}
+			HttpEntity entity = response.getEntity();
+			if (statusCode != HttpStatus.SC_OK || entity == null) {
+				throw new IOException(String.format("Fail to download %s: HTTP status %d.", uri, statusCode));
+			}
+
+			MessageDigest digest = CompoManifest.sha256();
+			try (InputStream input = new DigestInputStream(entity.getContent(), digest)) {
+				handler.handle(input);
+				// handler may not consume trailing bytes, e.g. zip central directory
+				byte[] buffer = new byte[8192];
+				while (input.read(buffer) != -1) {
+				}
+			}
+			return new CacheValidators.Validator(header(response, HttpHeaders.ETAG), header(response, HttpHeaders.LAST_MODIFIED), CompoManifest.hex(digest.digest()));
+		}
+	}
+
+	/**
+	 * Consumer for fetched content.
+	 */
+	@FunctionalInterface
+	public interface ContentHandler {
+		void handle(InputStream input) throws IOException;
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	private static String header(CloseableHttpResponse response, String name) {
+		Header header = response.getFirstHeader(name);
+		return header != null ? header.getValue() : null;
+	}
+}
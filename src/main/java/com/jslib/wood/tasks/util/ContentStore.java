@@ -0,0 +1,141 @@
+package com.jslib.wood.tasks.util;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import js.log.Log;
+import js.log.LogFactory;
+
+/**
+ * Content addressed store for the files of local components repository. Every distinct file content is stored once, as an
+ * object named by its SHA-256 hash, and component files from repository directories are hard links to store objects; a
+ * file shared by many component versions takes disk space only once. Component manifest, mapping file names to content
+ * hashes, is kept by {@link CacheValidators}. Repository files are never changed in place - downloads replace them with
+ * atomic moves - so store objects are not changed by repository updates.
+ * <p>
+ * Files are materialised into projects as copies, so that project files can be freely edited or deleted. Hard links into
+ * projects are opt-in, see {@link #ContentStore(Path, boolean)}: linked project files share content with store and with
+ * all other linked projects, and an in place edit changes all of them. If file system does not support hard links, e.g.
+ * project and repository are on different volumes, files are copied.
+ */
+public class ContentStore {
+	private static final Log log = LogFactory.getLog(ContentStore.class);
+
+	/** Store directory name, relative to repository directory. */
+	public static final String STORE_DIR = ".store";
+
+	private final Path storeDir;
+	/** Materialise project files as hard links to store objects instead of copies. */
+	private final boolean projectLinks;
+	/** Per hash locks; components are downloaded concurrently and may have files with the same content. */
+	private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+	/** Set after first hard link not supported by file system, to copy remaining files without retrying link. */
+	private volatile boolean linksUnsupported;
+
+	/**
+	 * Create store for local components repository.
+	 *
+	 * @param repositoryDir local repository directory,
+	 * @param projectLinks if true project files are hard links to store objects, otherwise copies.
+	 */
+	public ContentStore(Path repositoryDir, boolean projectLinks) {
+		this.storeDir = repositoryDir.resolve(STORE_DIR);
+		this.projectLinks = projectLinks;
+	}
+
+	/**
+	 * Add repository file to store and replace it with a hard link to store object. If store already has an object with
+	 * the same content, repository file is replaced by a link to existing object. Does nothing if repository file is
+	 * already linked to its store object. Safe to invoke concurrently, including for files with the same content.
+	 *
+	 * @param file repository file,
+	 * @param sha256 file content hash.
+	 * @throws IOException if store update fails.
+	 */
+	public void intern(Path file, String sha256) throws IOException {
+		synchronized (locks.computeIfAbsent(sha256, key -> new Object())) {
+			Path object = object(sha256);
+			if (!Files.exists(object)) {
+				Files.createDirectories(object.getParent());
+				try {
+					// if links are not supported file is not stored and stays as it is
+					link(file, object);
+					return;
+				} catch (FileAlreadyExistsException e) {
+					// object created meanwhile by another process sharing the repository
+				}
+			}
+			if (Files.isSameFile(object, file)) {
+				return;
+			}
+			Path tempLink = file.resolveSibling("~" + file.getFileName());
+			Files.deleteIfExists(tempLink);
+			if (link(object, tempLink)) {
+				Files.move(tempLink, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+		}
+	}
+
+	/**
+	 * Create project file with the content of a store object, as copy or, if enabled, as hard link. If store object is
+	 * missing, e.g. component was cached before store was introduced, repository file is copied. Existing target file is
+	 * replaced.
+	 *
+	 * @param file repository file,
+	 * @param sha256 file content hash, null if not known,
+	 * @param target project file,
+	 * @param copy force copy, for project files changed after import.
+	 * @throws IOException if file creation fails.
+	 */
+	public void materialize(Path file, String sha256, Path target, boolean copy) throws IOException {
+		Path object = sha256 != null ? object(sha256) : null;
+		if (projectLinks && !copy && object != null && Files.exists(object)) {
+			Files.deleteIfExists(target);
+			if (link(object, target)) {
+				return;
+			}
+		}
+		Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+		// objects from stores created by previous versions are read only and so are their copies
+		target.toFile().setWritable(true);
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/** Store object path, grouped into subdirectories by hash first two characters to keep directories small. */
+	private Path object(String sha256) {
+		return storeDir.resolve(sha256.substring(0, 2)).resolve(sha256);
+	}
+
+	/**
+	 * Create hard link. Returns false if file system does not support hard links between given paths, e.g. cross device
+	 * link; other failures are not related to links support and are thrown.
+	 *
+	 * @throws FileAlreadyExistsException if link path exists,
+	 * @throws IOException if link creation fails for reasons other than links support.
+	 */
+	private boolean link(Path existing, Path link) throws IOException {
+		if (linksUnsupported) {
+			return false;
+		}
+		try {
+			Files.createLink(link, existing);
+			return true;
+		} catch (FileAlreadyExistsException | NoSuchFileException | AccessDeniedException e) {
+			throw e;
+		} catch (UnsupportedOperationException | FileSystemException e) {
+			log.warn("Hard links not supported for %s: %s. Copy files.", link, e.getMessage());
+			linksUnsupported = true;
+			return false;
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package com.jslib.wood.tasks.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+import com.jslib.docore.repo.RepositoryCoordinates;
+import com.jslib.dospi.TaskAbortException;
+
+import js.log.Log;
+import js.log.LogFactory;
+
+/**
+ * Resolve transitive component dependencies before import. Graph is discovered breadth first and descriptors are loaded
+ * concurrently: a component descriptor is requested as soon as component is discovered, so that resolving a deep tree
+ * takes about one round trip per tree level. Components are identified by coordinates and every component is loaded only
+ * once, even if required by many components.
+ * <p>
+ * Components already installed on project are graph leaves: their descriptors are not loaded and they are not part of
+ * resolved list. Resolution fails if two components require different versions of the same artifact or if dependencies
+ * have cycles.
+ */
+public class DependencyResolver {
+	private static final Log log = LogFactory.getLog(DependencyResolver.class);
+
+	private final DescriptorLoader loader;
+	private final Predicate<RepositoryCoordinates> installed;
+	private final int threads;
+
+	/**
+	 * Create resolver instance.
+	 *
+	 * @param loader loader for component dependencies, invoked concurrently,
+	 * @param installed predicate for components already installed on project,
+	 * @param threads number of concurrent descriptor loads.
+	 */
+	public DependencyResolver(DescriptorLoader loader, Predicate<RepositoryCoordinates> installed, int threads) {
+		this.loader = loader;
+		this.installed = installed;
+		this.threads = threads;
+	}
+
+	/**
+	 * Resolve all transitive dependencies of a component and return components to import, in topological order: every
+	 * component is preceded by its dependencies. Given component is the last one.
+	 *
+	 * @param root coordinates of the component to import.
+	 * @return components to import, in dependencies order, empty if root component is already installed.
+	 * @throws TaskAbortException if there is a version conflict or dependencies cycle,
+	 * @throws IOException if a component descriptor cannot be loaded.
+	 */
+	public List<RepositoryCoordinates> resolve(RepositoryCoordinates root) throws TaskAbortException, IOException {
+		return resolve(Collections.singletonList(root));
+	}
+
+	/**
+	 * Resolve many components in a single session: descriptors are loaded concurrently for all components and versions must
+	 * be consistent across all dependency trees, since all components are imported into the same project. Returned
+	 * components are in topological order; roots already installed are skipped.
+	 *
+	 * @param roots coordinates of the components to import.
+	 * @return components to import, in dependencies order, possible empty.
+	 * @throws TaskAbortException if there is a version conflict or dependencies cycle,
+	 * @throws IOException if a component descriptor cannot be loaded.
+	 */
+	public List<RepositoryCoordinates> resolve(Collection<RepositoryCoordinates> roots) throws TaskAbortException, IOException {
+		// dependencies mapped by component key; installed components have no entry
+		Map<String, List<RepositoryCoordinates>> graph = new HashMap<>();
+		// versions mapped by artifact key, with the component that first required the version, for conflicts report
+		Map<String, String[]> versions = new HashMap<>();
+		Map<String, RepositoryCoordinates> components = new HashMap<>();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			CompletionService<Node> completion = new ExecutorCompletionService<>(executor);
+			int pending = 0;
+			for (RepositoryCoordinates root : roots) {
+				String[] version = versions.putIfAbsent(artifact(root), new String[] { root.getVersion(), "import" });
+				if (version != null && !Objects.equals(version[0], root.getVersion())) {
+					throw new TaskAbortException("Version conflict for %s: both %s and %s requested for import.", artifact(root), version[0], root.getVersion());
+				}
+				if (components.putIfAbsent(key(root), root) == null && !installed.test(root)) {
+					submit(completion, root);
+					++pending;
+				}
+			}
+
+			for (; pending > 0; --pending) {
+				Node node = take(completion);
+				graph.put(key(node.coordinates), node.dependencies);
+				for (RepositoryCoordinates dependency : node.dependencies) {
+					String[] version = versions.putIfAbsent(artifact(dependency), new String[] { dependency.getVersion(), key(node.coordinates) });
+					if (version != null && !Objects.equals(version[0], dependency.getVersion())) {
+						throw new TaskAbortException("Version conflict for %s: %s required by %s and %s required by %s.", artifact(dependency), version[0], version[1], dependency.getVersion(), key(node.coordinates));
+					}
+					if (components.putIfAbsent(key(dependency), dependency) == null && !installed.test(dependency)) {
+						submit(completion, dependency);
+						++pending;
+					}
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		log.debug("Resolved %d components for %d requested.", graph.size(), roots.size());
+		List<RepositoryCoordinates> order = new ArrayList<>();
+		Map<String, Boolean> visited = new HashMap<>();
+		for (RepositoryCoordinates root : roots) {
+			sort(root, graph, components, visited, new ArrayList<>(), order);
+		}
+		return order;
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	private void submit(CompletionService<Node> completion, RepositoryCoordinates coordinates) {
+		completion.submit(() -> new Node(coordinates, loader.getDependencies(coordinates)));
+	}
+
+	private static Node take(CompletionService<Node> completion) throws TaskAbortException, IOException {
+		try {
+			return completion.take().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Dependencies resolution interrupted.");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof TaskAbortException) {
+				throw (TaskAbortException) cause;
+			}
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	/** Depth first post-order traversal; a component found on current path closes a cycle. */
+	private static void sort(RepositoryCoordinates coordinates, Map<String, List<RepositoryCoordinates>> graph, Map<String, RepositoryCoordinates> components, Map<String, Boolean> visited, List<String> path, List<RepositoryCoordinates> order) throws TaskAbortException {
+		String key = key(coordinates);
+		List<RepositoryCoordinates> dependencies = graph.get(key);
+		if (dependencies == null) {
+			// installed component
+			return;
+		}
+		Boolean done = visited.get(key);
+		if (done != null) {
+			if (!done) {
+				List<String> cycle = new ArrayList<>(path.subList(path.indexOf(key), path.size()));
+				cycle.add(key);
+				throw new TaskAbortException("Dependencies cycle: %s.", String.join(" -> ", cycle));
+			}
+			return;
+		}
+
+		visited.put(key, false);
+		path.add(key);
+		for (RepositoryCoordinates dependency : dependencies) {
+			sort(components.get(key(dependency)), graph, components, visited, path, order);
+		}
+		path.remove(path.size() - 1);
+		visited.put(key, true);
+		order.add(coordinates);
+	}
+
+	private static String key(RepositoryCoordinates coordinates) {
+		return String.join(":", coordinates.getGroupId(), coordinates.getArtifactId(), coordinates.getVersion());
+	}
+
+	private static String artifact(RepositoryCoordinates coordinates) {
+		return String.join(":", coordinates.getGroupId(), coordinates.getArtifactId());
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Loader for the dependencies declared by component descriptor. Implementation may download component, if not already
+	 * on local repository, and should be thread safe.
+	 */
+	@FunctionalInterface
+	public interface DescriptorLoader {
+		List<RepositoryCoordinates> getDependencies(RepositoryCoordinates coordinates) throws Exception;
+	}
+
+	private static class Node {
+		final RepositoryCoordinates coordinates;
+		final List<RepositoryCoordinates> dependencies;
+
+		Node(RepositoryCoordinates coordinates, List<RepositoryCoordinates> dependencies) {
+			this.coordinates = coordinates;
+			this.dependencies = dependencies;
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package com.jslib.wood.tasks.util;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.jslib.docore.repo.RepositoryCoordinates;
+
+/**
+ * Read-only view of component descriptor header: root element, coordinates and, optionally, dependencies. Descriptor is
+ * streamed with StAX and reading stops as soon as requested data is available, so that no document tree is built. Use
+ * this class for lookups; descriptors that need to be edited are still loaded as DOM documents.
+ * <p>
+ * StAX input factories are expensive to create; there is one factory per thread, reused by all readings from that thread.
+ * DTD and external entities are not processed.
+ */
+public class DescriptorHeader {
+	private static final ThreadLocal<XMLInputFactory> factory = ThreadLocal.withInitial(() -> {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		return factory;
+	});
+
+	private String root;
+	private String groupId;
+	private String artifactId;
+	private String version;
+	private final List<RepositoryCoordinates> dependencies = new ArrayList<>();
+
+	private DescriptorHeader() {
+	}
+
+	/**
+	 * Read descriptor root and coordinates, that is, <code>groupId</code>, <code>artifactId</code> and <code>version</code>
+	 * children of the root element. If dependencies are not requested, reading stops after all coordinates are found.
+	 *
+	 * @param descriptorFile component descriptor file,
+	 * @param withDependencies if true, read also dependencies declared on descriptor.
+	 * @return descriptor header.
+	 * @throws IOException if descriptor reading fails or descriptor is not well formed.
+	 */
+	public static DescriptorHeader read(Path descriptorFile, boolean withDependencies) throws IOException {
+		DescriptorHeader header = new DescriptorHeader();
+		try (InputStream stream = Files.newInputStream(descriptorFile)) {
+			XMLStreamReader reader = factory.get().createXMLStreamReader(stream);
+			try {
+				header.read(reader, withDependencies);
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException(format("Fail to parse component descriptor |%s|: %s", descriptorFile, e.getMessage()));
+		}
+		return header;
+	}
+
+	private void read(XMLStreamReader reader, boolean withDependencies) throws XMLStreamException {
+		int depth = 0;
+		while (reader.hasNext()) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				++depth;
+				String name = reader.getLocalName();
+				if (depth == 1) {
+					root = name;
+					break;
+				}
+				if (depth == 2) {
+					switch (name) {
+					case "groupId":
+						groupId = reader.getElementText().trim();
+						--depth;
+						break;
+
+					case "artifactId":
+						artifactId = reader.getElementText().trim();
+						--depth;
+						break;
+
+					case "version":
+						version = reader.getElementText().trim();
+						--depth;
+						break;
+					}
+					break;
+				}
+				if (withDependencies && depth == 3 && "dependency".equals(name)) {
+					dependencies.add(readDependency(reader));
+					--depth;
+				}
+				break;
+
+			case XMLStreamConstants.END_ELEMENT:
+				--depth;
+				break;
+			}
+
+			if (!withDependencies && groupId != null && artifactId != null && version != null) {
+				return;
+			}
+		}
+	}
+
+	/** Read dependency coordinates. On entry reader is on dependency start tag and on exit on dependency end tag. */
+	private static RepositoryCoordinates readDependency(XMLStreamReader reader) throws XMLStreamException {
+		String groupId = null;
+		String artifactId = null;
+		String version = null;
+
+		int depth = 1;
+		while (depth > 0 && reader.hasNext()) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				switch (reader.getLocalName()) {
+				case "groupId":
+					groupId = reader.getElementText().trim();
+					break;
+
+				case "artifactId":
+					artifactId = reader.getElementText().trim();
+					break;
+
+				case "version":
+					version = reader.getElementText().trim();
+					break;
+
+				default:
+					++depth;
+				}
+				break;
+
+			case XMLStreamConstants.END_ELEMENT:
+				--depth;
+				break;
+			}
+		}
+		return new RepositoryCoordinates(groupId, artifactId, version);
+	}
+
+	/** Descriptor root element name. */
+	public String getRoot() {
+		return root;
+	}
+
+	public String getGroupId() {
+		return groupId;
+	}
+
+	public String getArtifactId() {
+		return artifactId;
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	public RepositoryCoordinates getCoordinates() {
+		return new RepositoryCoordinates(groupId, artifactId, version);
+	}
+
+	/** Declared dependencies, empty if none declared or if dependencies were not requested. */
+	public List<RepositoryCoordinates> getDependencies() {
+		return Collections.unmodifiableList(dependencies);
+	}
+}
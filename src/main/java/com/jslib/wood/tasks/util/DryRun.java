@@ -0,0 +1,191 @@
+package com.jslib.wood.tasks.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import com.jslib.dospi.IPrintout;
+
+import js.log.Log;
+import js.log.LogFactory;
+
+/**
+ * Refactoring preview: records the same file moves and runs the same rewriters as {@link FileTransaction} but without
+ * changing project files. Rewritten contents are kept in memory, so that a file rewritten by many passes is previewed with
+ * all changes. Files are rewritten in parallel.
+ * <p>
+ * Rewriters are invoked with file paths as they will be after moves, exactly as on real run, while content is read from
+ * original files. Preview result is a unified diff, written to project cache directory, and summary counts.
+ */
+public class DryRun {
+	private static final Log log = LogFactory.getLog(DryRun.class);
+
+	private static final String DIFF_FILE = "dry-run.diff";
+
+	private final Path projectDir;
+	/** File and directory moves, in order. */
+	private final List<Path[]> moves = new ArrayList<>();
+	/** Rewritten contents mapped by original file path. */
+	private final Map<Path, byte[]> contents = new ConcurrentHashMap<>();
+	/** Replacements count mapped by original file path. */
+	private final Map<Path, Integer> replacements = new ConcurrentHashMap<>();
+
+	public DryRun(Path projectDir) {
+		this.projectDir = projectDir;
+	}
+
+	/**
+	 * Record file or directory move.
+	 *
+	 * @param source source file or directory,
+	 * @param target target path.
+	 */
+	public void move(Path source, Path target) {
+		log.debug("Dry run move %s to %s.", source, target);
+		moves.add(new Path[] { source, target });
+	}
+
+	/**
+	 * Get the path a file or directory had before recorded moves. Useful to list directories as they are on file system.
+	 *
+	 * @param file file or directory path, as left by recorded moves.
+	 * @return original path.
+	 */
+	public Path origin(Path file) {
+		for (int i = moves.size() - 1; i >= 0; --i) {
+			Path[] move = moves.get(i);
+			if (file.startsWith(move[1])) {
+				file = move[0].resolve(move[1].relativize(file));
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * Rewrite files in memory, in parallel. Files should be given with their paths before recorded moves.
+	 *
+	 * @param rewriter file rewriter,
+	 * @param files original files.
+	 * @throws IOException if file reading fails.
+	 */
+	public void rewrite(FileRewriter rewriter, Collection<Path> files) throws IOException {
+		try {
+			files.parallelStream().forEach(file -> {
+				byte[] current = contents.get(file);
+				ByteArrayOutputStream output = new ByteArrayOutputStream();
+				int count;
+				try {
+					count = rewriter.rewrite(target(file), current != null ? FileContent.of(current) : FileContent.of(file), output);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				if (count > 0) {
+					contents.put(file, output.toByteArray());
+					replacements.merge(file, count, Integer::sum);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Write unified diff of all rewritten files to project cache directory and display summary: moves, rewritten files
+	 * with replacements count and totals.
+	 *
+	 * @param printout shell printout.
+	 * @throws IOException if reading original files or writing diff file fails.
+	 */
+	public void display(IPrintout printout) throws IOException {
+		Map<String, Path> files = new TreeMap<>();
+		contents.keySet().forEach(file -> files.put(relative(file), file));
+
+		// diffs are computed in parallel then written in files order
+		Map<Path, String> diffs;
+		try {
+			diffs = files.values().parallelStream().collect(Collectors.toConcurrentMap(file -> file, file -> {
+				try {
+					return UnifiedDiff.format(relative(file), relative(target(file)), text(Files.readAllBytes(file)), text(contents.get(file)));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		Path diffFile = projectDir.resolve(ProjectIndex.CACHE_DIR).resolve(DIFF_FILE);
+		Files.createDirectories(diffFile.getParent());
+		long oldBytes = 0;
+		long newBytes = 0;
+		int totalReplacements = 0;
+		try (Writer writer = Files.newBufferedWriter(diffFile, StandardCharsets.UTF_8)) {
+			for (Path file : files.values()) {
+				writer.write(diffs.get(file));
+				oldBytes += Files.size(file);
+				newBytes += contents.get(file).length;
+				totalReplacements += replacements.get(file);
+			}
+		} catch (NoSuchFileException e) {
+			throw new IOException("Project file removed while previewing changes: " + e.getFile());
+		}
+
+		printout.addHeading1("Dry run: no project file was changed.");
+		if (!moves.isEmpty()) {
+			printout.addHeading1("Moves:");
+			printout.createUnorderedList();
+			for (Path[] move : moves) {
+				printout.addListItem(String.format("%s -> %s", relative(move[0]), relative(move[1])));
+			}
+		}
+		if (!files.isEmpty()) {
+			printout.addHeading1("Rewritten files with replacements count:");
+			printout.createUnorderedList();
+			files.forEach((path, file) -> printout.addListItem(String.format("%s (%d)", relative(target(file)), replacements.get(file))));
+		}
+		printout.createDefinitionsList();
+		printout.addDefinition("Moves", Integer.toString(moves.size()));
+		printout.addDefinition("Rewritten files", Integer.toString(files.size()));
+		printout.addDefinition("Replacements", Integer.toString(totalReplacements));
+		printout.addDefinition("Bytes", String.format("%d -> %d (%+d)", oldBytes, newBytes, newBytes - oldBytes));
+		printout.addDefinition("Unified diff", diffFile.toString());
+		printout.display();
+	}
+
+	/**
+	 * Get file or directory path after all recorded moves, applied in order.
+	 *
+	 * @param file original path.
+	 * @return path as left by recorded moves.
+	 */
+	public Path target(Path file) {
+		for (Path[] move : moves) {
+			if (file.startsWith(move[0])) {
+				file = move[1].resolve(move[0].relativize(file));
+			}
+		}
+		return file;
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	private String relative(Path file) {
+		return projectDir.relativize(file).toString().replace('\\', '/');
+	}
+
+	private static String text(byte[] bytes) {
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,52 @@
+package com.jslib.wood.tasks.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Content of a file to rewrite, see {@link FileRewriter}: either the file itself or content already rewritten in memory,
+ * e.g. by a previous pass of a dry run. Rewriters read content with {@link #openStream()}, possible many times.
+ */
+public abstract class FileContent {
+	/**
+	 * Create content backed by file.
+	 *
+	 * @param file file path.
+	 * @return file content.
+	 */
+	public static FileContent of(Path file) {
+		return new FileContent() {
+			@Override
+			public InputStream openStream() throws IOException {
+				return new BufferedInputStream(Files.newInputStream(file));
+			}
+		};
+	}
+
+	/**
+	 * Create content backed by bytes array.
+	 *
+	 * @param bytes content bytes.
+	 * @return in memory content.
+	 */
+	public static FileContent of(byte[] bytes) {
+		return new FileContent() {
+			@Override
+			public InputStream openStream() {
+				return new ByteArrayInputStream(bytes);
+			}
+		};
+	}
+
+	/**
+	 * Open a new stream on content. Caller should close it.
+	 *
+	 * @return content stream.
+	 * @throws IOException if file opening fails, including {@link java.nio.file.NoSuchFileException}.
+	 */
+	public abstract InputStream openStream() throws IOException;
+}
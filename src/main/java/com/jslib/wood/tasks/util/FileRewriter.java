@@ -0,0 +1,24 @@
+package com.jslib.wood.tasks.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * Rewrites a project file for refactoring, see {@link FileTransaction#rewrite(FileRewriter, java.util.Collection)} and
+ * {@link DryRun#rewrite(FileRewriter, java.util.Collection)}. Implementations should be thread safe since files are
+ * rewritten in parallel.
+ */
+public interface FileRewriter {
+	/**
+	 * Rewrite file content to output stream. If content does not need changes nothing is written to output. Output stream
+	 * is not closed by this method.
+	 *
+	 * @param file project file, used to select rewrite rules,
+	 * @param content file content, possible already rewritten in memory,
+	 * @param output output stream for rewritten content.
+	 * @return number of replacements, zero if content is not changed.
+	 * @throws IOException if reading or writing fails.
+	 */
+	int rewrite(Path file, FileContent content, OutputStream output) throws IOException;
+}
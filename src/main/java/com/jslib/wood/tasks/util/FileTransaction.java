@@ -0,0 +1,370 @@
+package com.jslib.wood.tasks.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import js.log.Log;
+import js.log.LogFactory;
+
+/**
+ * All or nothing changes to project files, for refactoring tasks. Every change is recorded on a journal from project cache
+ * directory before being applied, so that on failure all changes are rolled back, in reverse order. If process dies in the
+ * middle of a transaction, journal is left on disk and is recovered by the next transaction: rolled back if not committed,
+ * or completed otherwise. Only one transaction at a time is allowed on a project, guarded by an exclusive lock on a file
+ * from project cache directory, held till transaction is closed; a journal is recovered only by the lock owner, so that a
+ * transaction still in progress is never rolled back by another one.
+ * <p>
+ * Rewritten files are first written to temporary files, in parallel; only after all contents are ready original files are
+ * replaced with atomic renames. Original content is kept on backup files till commit. Temporary and backup files are
+ * hidden siblings of the rewritten file, so that they are skipped by project index, as all hidden files.
+ * <p>
+ * Transaction is rolled back on close if not committed, so that it is meant to be used with try-with-resources:
+ *
+ * <pre>
+ * try (FileTransaction transaction = FileTransaction.begin(projectDir)) {
+ * 	transaction.move(compoDir, newCompoDir);
+ * 	transaction.rewrite(rewriter, files);
+ * 	transaction.commit();
+ * }
+ * </pre>
+ */
+public class FileTransaction implements AutoCloseable {
+	private static final Log log = LogFactory.getLog(FileTransaction.class);
+
+	private static final String JOURNAL_FILE = "refactor.journal";
+	private static final String LOCK_FILE = "refactor.lock";
+
+	private static final String MKDIR = "MKDIR";
+	private static final String MOVE = "MOVE";
+	private static final String WRITE = "WRITE";
+	private static final String COMMIT = "COMMIT";
+
+	private final Path projectDir;
+	private final Path journal;
+	/** Journal entries in the order they were applied. */
+	private final List<String[]> entries = new ArrayList<>();
+
+	/** Channel holding exclusive lock on project lock file, released when transaction is closed. */
+	private final FileChannel lockChannel;
+
+	private boolean closed;
+
+	private FileTransaction(Path projectDir, Path journal, FileChannel lockChannel) {
+		this.projectDir = projectDir;
+		this.journal = journal;
+		this.lockChannel = lockChannel;
+	}
+
+	/**
+	 * Begin a new transaction on project. Project lock is acquired first; if a journal is found while holding the lock, its
+	 * transaction owner is gone and journal is recovered before the new transaction starts.
+	 *
+	 * @param projectDir project root directory.
+	 * @return new transaction.
+	 * @throws IOException if journal recovery fails or there is another transaction in progress.
+	 */
+	public static FileTransaction begin(Path projectDir) throws IOException {
+		Path cacheDir = projectDir.resolve(ProjectIndex.CACHE_DIR);
+		Files.createDirectories(cacheDir);
+		FileChannel lockChannel = FileChannel.open(cacheDir.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		try {
+			FileLock lock;
+			try {
+				lock = lockChannel.tryLock();
+			} catch (OverlappingFileLockException e) {
+				// lock already held by a transaction from this virtual machine
+				lock = null;
+			}
+			if (lock == null) {
+				throw new IOException("Another refactoring is in progress on project " + projectDir);
+			}
+
+			Path journal = cacheDir.resolve(JOURNAL_FILE);
+			if (Files.exists(journal)) {
+				log.warn("Recover interrupted refactoring from journal %s.", journal);
+				recover(projectDir, journal);
+			}
+			Files.createFile(journal);
+			return new FileTransaction(projectDir, journal, lockChannel);
+		} catch (IOException | RuntimeException e) {
+			// closing channel releases the lock, if acquired
+			lockChannel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Create directory, including missing parents.
+	 *
+	 * @param dir directory to create.
+	 * @throws IOException if journal writing or directory creation fails.
+	 */
+	public void createDirectory(Path dir) throws IOException {
+		List<Path> dirs = new ArrayList<>();
+		for (Path parent = dir; parent != null && !Files.exists(parent); parent = parent.getParent()) {
+			dirs.add(parent);
+		}
+		Collections.reverse(dirs);
+		for (Path missingDir : dirs) {
+			record(MKDIR, missingDir);
+			Files.createDirectory(missingDir);
+		}
+	}
+
+	/**
+	 * Move file or directory. Target should not exist.
+	 *
+	 * @param source source file or directory,
+	 * @param target target path.
+	 * @throws IOException if journal writing or moving fails.
+	 */
+	public void move(Path source, Path target) throws IOException {
+		record(MOVE, source, target);
+		Files.move(source, target);
+	}
+
+	/**
+	 * Rewrite files in two stages: rewritten contents are written to temporary files in parallel then, if all succeed,
+	 * original files are replaced. Files not changed by rewriter are not touched. A file can be rewritten many times in the
+	 * same transaction; its original content is preserved for rollback.
+	 *
+	 * @param rewriter file rewriter,
+	 * @param files files to rewrite.
+	 * @return rewritten files, possible empty.
+	 * @throws IOException if reading, writing or journal updating fails.
+	 */
+	public List<Path> rewrite(FileRewriter rewriter, Collection<Path> files) throws IOException {
+		// tasks do not throw: a failed parallel stream returns while sibling tasks still run, that would race with rollback
+		Map<Path, IOException> failures = new ConcurrentHashMap<>();
+		List<Path> rewrittenFiles = files.parallelStream().filter(file -> {
+			Path temp = temp(file);
+			try (TempOutputStream output = new TempOutputStream(temp)) {
+				if (rewriter.rewrite(file, FileContent.of(file), output) == 0) {
+					return false;
+				}
+				output.create();
+				record(WRITE, file);
+				return true;
+			} catch (IOException | RuntimeException e) {
+				try {
+					Files.deleteIfExists(temp);
+				} catch (IOException ignored) {
+				}
+				failures.put(file, e instanceof IOException ? (IOException) e : new IOException(e));
+				return false;
+			}
+		}).collect(Collectors.toList());
+		if (!failures.isEmpty()) {
+			// all tasks are completed here; temporary files already recorded are removed by rollback
+			Iterator<IOException> iterator = failures.values().iterator();
+			IOException exception = iterator.next();
+			iterator.forEachRemaining(exception::addSuppressed);
+			throw exception;
+		}
+
+		for (Path file : rewrittenFiles) {
+			log.info("Rewrite file %s.", file);
+			if (Files.exists(backup(file))) {
+				// file already rewritten by this transaction; keep original content backup
+				Files.move(temp(file), file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				continue;
+			}
+			Files.move(file, backup(file), StandardCopyOption.ATOMIC_MOVE);
+			Files.move(temp(file), file, StandardCopyOption.ATOMIC_MOVE);
+		}
+		return rewrittenFiles;
+	}
+
+	/**
+	 * Make all changes permanent: remove backup files and journal.
+	 *
+	 * @throws IOException if journal updating fails.
+	 */
+	public void commit() throws IOException {
+		record(COMMIT);
+		// changes are permanent from here and should not be rolled back on close; if backup files or journal removal fails,
+		// journal is completed by next transaction recovery
+		closed = true;
+		try {
+			complete(projectDir, entries);
+			Files.delete(journal);
+		} finally {
+			lockChannel.close();
+		}
+	}
+
+	/**
+	 * Undo all changes, in reverse order. Journal is removed only if rollback succeeds.
+	 *
+	 * @throws IOException if any change cannot be undone.
+	 */
+	public void rollback() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		log.warn("Roll back refactoring changes.");
+		try {
+			rollback(projectDir, entries);
+			Files.delete(journal);
+		} finally {
+			lockChannel.close();
+		}
+	}
+
+	/** Roll back transaction if not committed. */
+	@Override
+	public void close() throws IOException {
+		rollback();
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/** Append entry to journal, synchronously, before the change is applied. */
+	private synchronized void record(String operation, Path... paths) throws IOException {
+		String[] entry = new String[paths.length + 1];
+		entry[0] = operation;
+		for (int i = 0; i < paths.length; ++i) {
+			entry[i + 1] = projectDir.relativize(paths[i]).toString().replace('\\', '/');
+		}
+		Files.write(journal, Collections.singletonList(String.join("\t", entry)), StandardCharsets.UTF_8, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+		entries.add(entry);
+	}
+
+	private static void recover(Path projectDir, Path journal) throws IOException {
+		List<String[]> entries = new ArrayList<>();
+		for (String line : Files.readAllLines(journal, StandardCharsets.UTF_8)) {
+			if (!line.isEmpty()) {
+				entries.add(line.split("\t"));
+			}
+		}
+		if (!entries.isEmpty() && COMMIT.equals(entries.get(entries.size() - 1)[0])) {
+			complete(projectDir, entries);
+		} else {
+			rollback(projectDir, entries);
+		}
+		Files.delete(journal);
+	}
+
+	private static void complete(Path projectDir, List<String[]> entries) {
+		for (String[] entry : entries) {
+			if (WRITE.equals(entry[0])) {
+				Path file = projectDir.resolve(entry[1]);
+				try {
+					Files.deleteIfExists(backup(file));
+				} catch (IOException e) {
+					log.warn("Fail to remove backup file for %s: %s", file, e.getMessage());
+				}
+			}
+		}
+	}
+
+	private static void rollback(Path projectDir, List<String[]> entries) throws IOException {
+		int failures = 0;
+		for (int i = entries.size() - 1; i >= 0; --i) {
+			String[] entry = entries.get(i);
+			try {
+				switch (entry[0]) {
+				case WRITE:
+					Path file = projectDir.resolve(entry[1]);
+					Files.deleteIfExists(temp(file));
+					if (Files.exists(backup(file))) {
+						Files.move(backup(file), file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+					}
+					break;
+
+				case MOVE:
+					Path source = projectDir.resolve(entry[1]);
+					Path target = projectDir.resolve(entry[2]);
+					if (Files.exists(target) && !Files.exists(source)) {
+						Files.move(target, source);
+					}
+					break;
+
+				case MKDIR:
+					try {
+						Files.deleteIfExists(projectDir.resolve(entry[1]));
+					} catch (DirectoryNotEmptyException e) {
+						log.warn("Cannot remove not empty directory %s.", entry[1]);
+					}
+					break;
+				}
+			} catch (IOException e) {
+				log.error("Fail to roll back %s: %s", String.join(" ", entry), e.getMessage());
+				++failures;
+			}
+		}
+		if (failures > 0) {
+			throw new IOException(String.format("Fail to roll back %d changes. Journal kept for recovery.", failures));
+		}
+	}
+
+	/** Output stream to temporary file, created on first write so that files not changed are not touched. */
+	private static class TempOutputStream extends OutputStream {
+		private final Path file;
+		private OutputStream stream;
+
+		TempOutputStream(Path file) {
+			this.file = file;
+		}
+
+		/** Create temporary file if not already created, for the case rewritten content is empty. */
+		void create() throws IOException {
+			if (stream == null) {
+				stream = new BufferedOutputStream(Files.newOutputStream(file));
+			}
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			create();
+			stream.write(b);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			create();
+			stream.write(bytes, offset, length);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (stream != null) {
+				stream.flush();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (stream != null) {
+				stream.close();
+			}
+		}
+	}
+
+	private static Path temp(Path file) {
+		return file.resolveSibling("." + file.getFileName() + ".tmp");
+	}
+
+	private static Path backup(Path file) {
+		return file.resolveSibling("." + file.getFileName() + ".bak");
+	}
+}
@@ -0,0 +1,344 @@
+package com.jslib.wood.tasks.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import js.wood.WOOD;
+
+/**
+ * Lightweight, streaming scanner for layout files. It does not build a document tree; it just reports start and end tags,
+ * with attributes, to a {@link Handler}. Memory footprint does not depend on layout file size since only current tag is
+ * buffered. Comments, CDATA sections, processing instructions and document type declaration are skipped.
+ * <p>
+ * Namespace prefixes bound to WOOD namespace are collected while scanning, see {@link #getWoodPrefixes()}. Namespace
+ * declarations from a start tag are processed before handler is invoked, so that operators declared on the same element
+ * are recognized.
+ * <p>
+ * If created with a writer, scanner echoes layout stream to writer, unchanged, except attributes changed by handler with
+ * {@link Attribute#setValue(String)}, {@link Attribute#setName(String)} or {@link Attribute#remove()}. Only the changed
+ * names and values are replaced; spacing, quotes, comments and everything else are preserved exactly.
+ */
+public class LayoutScanner {
+	private final Reader reader;
+	private final Writer writer;
+	private final Set<String> woodPrefixes = new HashSet<>();
+	private final StringBuilder tag = new StringBuilder();
+
+	public LayoutScanner(Reader reader) {
+		this(reader, null);
+	}
+
+	/**
+	 * Create scanner that echoes layout stream to writer, with attribute values possible changed by handler.
+	 *
+	 * @param reader layout reader,
+	 * @param writer layout writer, null if echo is not required.
+	 */
+	public LayoutScanner(Reader reader, Writer writer) {
+		this.reader = reader;
+		this.writer = writer;
+	}
+
+	public Set<String> getWoodPrefixes() {
+		return Collections.unmodifiableSet(woodPrefixes);
+	}
+
+	/**
+	 * Scan layout stream till its end, invoking handler for every start and end tag. Handler is invoked for end tag also
+	 * for self closing elements. This method does not close the reader, nor the writer.
+	 *
+	 * @param handler scanner events handler.
+	 * @throws IOException if reading fails or handler throws it.
+	 */
+	public void scan(Handler handler) throws IOException {
+		int c;
+		while ((c = read()) != -1) {
+			if (c != '<') {
+				continue;
+			}
+			// tag first character is not echoed since tags are buffered and echoed after handler invocation
+			c = reader.read();
+			switch (c) {
+			case -1:
+				return;
+
+			case '!':
+				echo(c);
+				skipMarkup();
+				break;
+
+			case '?':
+				echo(c);
+				skipTo("?>");
+				break;
+
+			case '/':
+				tag.setLength(0);
+				boolean closed = readTag();
+				handler.endElement(tag.toString().trim());
+				if (writer != null) {
+					writer.write('/');
+					writer.append(tag);
+					if (closed) {
+						writer.write('>');
+					}
+				}
+				break;
+
+			default:
+				if (!isNameStart(c)) {
+					// not a tag, most probably a not escaped less than in text content
+					echo(c);
+					break;
+				}
+				tag.setLength(0);
+				tag.append((char) c);
+				startElement(handler, readTag());
+			}
+		}
+	}
+
+	private void startElement(Handler handler, boolean closed) throws IOException {
+		boolean selfClosing = tag.length() > 0 && tag.charAt(tag.length() - 1) == '/';
+		int end = selfClosing ? tag.length() - 1 : tag.length();
+
+		int index = 0;
+		while (index < end && !Character.isWhitespace(tag.charAt(index))) {
+			++index;
+		}
+		String tagName = tag.substring(0, index);
+
+		List<Attribute> attributes = new ArrayList<>();
+		while (index < end) {
+			int attributeStart = index;
+			while (index < end && Character.isWhitespace(tag.charAt(index))) {
+				++index;
+			}
+			int nameStart = index;
+			while (index < end && tag.charAt(index) != '=' && !Character.isWhitespace(tag.charAt(index))) {
+				++index;
+			}
+			if (index == nameStart) {
+				break;
+			}
+			String name = tag.substring(nameStart, index);
+
+			while (index < end && Character.isWhitespace(tag.charAt(index))) {
+				++index;
+			}
+			if (index == end || tag.charAt(index) != '=') {
+				// attribute without value, not valid XML but tolerated
+				attributes.add(new Attribute(name, "", attributeStart, nameStart, -1, -1, nameStart + name.length()));
+				continue;
+			}
+			++index;
+			while (index < end && Character.isWhitespace(tag.charAt(index))) {
+				++index;
+			}
+
+			int valueStart;
+			int valueEnd;
+			if (index < end && (tag.charAt(index) == '"' || tag.charAt(index) == '\'')) {
+				char quote = tag.charAt(index++);
+				valueStart = index;
+				while (index < end && tag.charAt(index) != quote) {
+					++index;
+				}
+				valueEnd = index;
+				++index;
+			} else {
+				valueStart = index;
+				while (index < end && !Character.isWhitespace(tag.charAt(index))) {
+					++index;
+				}
+				valueEnd = index;
+			}
+			attributes.add(new Attribute(name, tag.substring(valueStart, Math.min(valueEnd, end)), attributeStart, nameStart, valueStart, Math.min(valueEnd, end), Math.min(index, end)));
+		}
+
+		for (Attribute attribute : attributes) {
+			if (attribute.name.startsWith("xmlns:") && WOOD.NS.equals(attribute.value)) {
+				woodPrefixes.add(attribute.name.substring(6));
+			}
+		}
+
+		handler.startElement(tagName, attributes);
+		if (writer != null) {
+			writeTag(attributes, closed);
+		}
+		if (selfClosing) {
+			handler.endElement(tagName);
+		}
+	}
+
+	/** Echo start tag from buffer, replacing changed attribute names and values and skipping removed attributes. */
+	private void writeTag(List<Attribute> attributes, boolean closed) throws IOException {
+		int position = 0;
+		for (Attribute attribute : attributes) {
+			if (attribute.removed) {
+				// leading white space is removed together with the attribute
+				writer.append(tag, position, attribute.start);
+				position = attribute.end;
+				continue;
+			}
+			if (attribute.newName != null) {
+				writer.append(tag, position, attribute.nameStart);
+				writer.write(attribute.newName);
+				position = attribute.nameStart + attribute.name.length();
+			}
+			if (attribute.newValue != null && attribute.valueStart != -1) {
+				writer.append(tag, position, attribute.valueStart);
+				writer.write(attribute.newValue);
+				position = attribute.valueEnd;
+			}
+		}
+		writer.append(tag, position, tag.length());
+		if (closed) {
+			writer.write('>');
+		}
+	}
+
+	/**
+	 * Read tag content, after tag name first character, into {@link #tag} buffer, excluding closing mark. Returns false if
+	 * stream ends before tag closing mark.
+	 */
+	private boolean readTag() throws IOException {
+		char quote = 0;
+		int c;
+		while ((c = reader.read()) != -1) {
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '"' || c == '\'') {
+				quote = (char) c;
+			} else if (c == '>') {
+				return true;
+			}
+			tag.append((char) c);
+		}
+		return false;
+	}
+
+	/** Read next character and echo it to writer, if any. */
+	private int read() throws IOException {
+		int c = reader.read();
+		echo(c);
+		return c;
+	}
+
+	private void echo(int c) throws IOException {
+		if (writer != null && c != -1) {
+			writer.write(c);
+		}
+	}
+
+	/** Skip comment, CDATA section or document type declaration. Opening mark, including exclamation, is consumed. */
+	private void skipMarkup() throws IOException {
+		int c = read();
+		if (c == '-') {
+			read();
+			skipTo("-->");
+		} else if (c == '[') {
+			skipTo("]]>");
+		} else if (c != '>') {
+			skipTo(">");
+		}
+	}
+
+	private void skipTo(String mark) throws IOException {
+		// sliding window with the last characters read, as many as mark length
+		char[] window = new char[mark.length()];
+		int count = 0;
+		int c;
+		while ((c = read()) != -1) {
+			System.arraycopy(window, 1, window, 0, window.length - 1);
+			window[window.length - 1] = (char) c;
+			if (++count >= window.length && mark.equals(new String(window))) {
+				return;
+			}
+		}
+	}
+
+	private static boolean isNameStart(int c) {
+		return Character.isLetter(c) || c == '_' || c == ':';
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Layout scanner events handler.
+	 */
+	public interface Handler {
+		void startElement(String tag, List<Attribute> attributes) throws IOException;
+
+		default void endElement(String tag) throws IOException {
+		}
+	}
+
+	/**
+	 * Start tag attribute. Attribute name is qualified name, as present on source, and value is not unescaped.
+	 */
+	public static class Attribute {
+		private final String name;
+		private final String value;
+		/** Attribute start offset in tag buffer, including leading white space, and end offset, after closing quote. */
+		private final int start;
+		private final int end;
+		private final int nameStart;
+		/** Value start and end offsets in tag buffer, -1 if attribute has no value. */
+		private final int valueStart;
+		private final int valueEnd;
+		private String newName;
+		private String newValue;
+		private boolean removed;
+
+		private Attribute(String name, String value, int start, int nameStart, int valueStart, int valueEnd, int end) {
+			this.name = name;
+			this.value = value;
+			this.start = start;
+			this.nameStart = nameStart;
+			this.valueStart = valueStart;
+			this.valueEnd = valueEnd;
+			this.end = end;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getValue() {
+			return value;
+		}
+
+		/**
+		 * Replace attribute value on scanner output; has no effect if scanner has no writer or if attribute has no value.
+		 * New value is written as it is, between original quotes, and should be already escaped.
+		 *
+		 * @param newValue new attribute value.
+		 */
+		public void setValue(String newValue) {
+			this.newValue = newValue;
+		}
+
+		/**
+		 * Rename attribute on scanner output; has no effect if scanner has no writer.
+		 *
+		 * @param newName new attribute name, qualified name if has namespace prefix.
+		 */
+		public void setName(String newName) {
+			this.newName = newName;
+		}
+
+		/** Remove attribute from scanner output, together with its leading white space. */
+		public void remove() {
+			this.removed = true;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package com.jslib.wood.tasks.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewriter for text located by byte offsets, as recorded by an index, e.g. {@link VariableIndex}. Files without edits are
+ * not read at all and files with edits are streamed, copying bytes between edits. Before replacing, the bytes at edit
+ * offset are checked against expected text; if file was changed after index was built rewriting fails with
+ * {@link IOException}, so that enclosing transaction is rolled back.
+ */
+public class OffsetRewriter implements FileRewriter {
+	private final Path projectDir;
+	/** Edits mapped by project relative file path, sorted by offset; read only while rewriting, that runs in parallel. */
+	private final Map<String, List<Edit>> edits = new HashMap<>();
+
+	public OffsetRewriter(Path projectDir) {
+		this.projectDir = projectDir;
+	}
+
+	/**
+	 * Add text replacement. Edits on the same file should not overlap.
+	 *
+	 * @param file project relative file path,
+	 * @param offset text byte offset,
+	 * @param text expected text at offset,
+	 * @param replacement replacement text.
+	 * @return this object.
+	 */
+	public OffsetRewriter add(String file, int offset, String text, String replacement) {
+		List<Edit> fileEdits = edits.computeIfAbsent(file, key -> new ArrayList<>());
+		// edits are usually added in offset order, from index scanning; insert from end to keep list sorted
+		int index = fileEdits.size();
+		while (index > 0 && fileEdits.get(index - 1).offset > offset) {
+			--index;
+		}
+		fileEdits.add(index, new Edit(offset, text, replacement));
+		return this;
+	}
+
+	public boolean isEmpty() {
+		return edits.isEmpty();
+	}
+
+	@Override
+	public int rewrite(Path file, FileContent content, OutputStream output) throws IOException {
+		List<Edit> fileEdits = edits.get(projectDir.relativize(file).toString().replace('\\', '/'));
+		if (fileEdits == null) {
+			return 0;
+		}
+		try (InputStream input = content.openStream()) {
+			long position = 0;
+			for (Edit edit : fileEdits) {
+				position += copy(input, output, edit.offset - position);
+				if (position != edit.offset) {
+					throw new IOException(String.format("File %s changed since indexed: offset %d out of range.", file, edit.offset));
+				}
+				for (byte expected : edit.text) {
+					if (input.read() != (expected & 0xFF)) {
+						throw new IOException(String.format("File %s changed since indexed: unexpected content at offset %d.", file, edit.offset));
+					}
+				}
+				position += edit.text.length;
+				output.write(edit.replacement);
+			}
+			copy(input, output, Long.MAX_VALUE);
+		}
+		return fileEdits.size();
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	private static long copy(InputStream input, OutputStream output, long length) throws IOException {
+		byte[] buffer = new byte[8192];
+		long copied = 0;
+		while (copied < length) {
+			int count = input.read(buffer, 0, (int) Math.min(buffer.length, length - copied));
+			if (count == -1) {
+				break;
+			}
+			output.write(buffer, 0, count);
+			copied += count;
+		}
+		return copied;
+	}
+
+	private static class Edit {
+		final int offset;
+		final byte[] text;
+		final byte[] replacement;
+
+		Edit(int offset, String text, String replacement) {
+			this.offset = offset;
+			this.text = text.getBytes(StandardCharsets.UTF_8);
+			this.replacement = replacement.getBytes(StandardCharsets.UTF_8);
+		}
+	}
+}
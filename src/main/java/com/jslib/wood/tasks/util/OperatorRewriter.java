@@ -0,0 +1,176 @@
+package com.jslib.wood.tasks.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Structure aware rewriter for component references. It does not replace text, as plain search and replace would; it rewrites
+ * only values of the WOOD reference operators - <code>compo</code> and <code>template</code>, from layout files, and
+ * script <code>src</code> attributes from component descriptors, including script dependencies. Operators are recognized
+ * accordingly project operators naming; other attributes and text content are never changed, even if contain a component
+ * path. Editable, content and param operators are recognized too but their values are names, not paths, and are left
+ * untouched.
+ * <p>
+ * Files are streamed with {@link LayoutScanner}, in constant memory. A file is scanned first read-only; only if it has
+ * values to rewrite it is scanned again with output to rewritten content stream. Original formatting is preserved.
+ * <p>
+ * All rules of a refactoring are applied in a single pass over project files, see
+ * {@link FileTransaction#rewrite(FileRewriter, java.util.Collection)}; files of any extension can be given, those that are
+ * neither layouts nor descriptors are skipped by name, without being read, and files without matching references are not
+ * rewritten.
+ * <p>
+ * Rules are component directory moves - that apply to component descendants too, and exact file moves, e.g. renamed
+ * component script. Exact file rules have priority over directory rules.
+ */
+public class OperatorRewriter implements FileRewriter {
+	private final OperatorsNaming naming;
+	/** Component directories mapped to new paths. */
+	private final Map<String, String> paths = new HashMap<>();
+	/** Files mapped to new paths. */
+	private final Map<String, String> files = new HashMap<>();
+
+	public OperatorRewriter(OperatorsNaming naming) {
+		this.naming = naming;
+	}
+
+	/**
+	 * Add component directory move. References to component descendants are rewritten too.
+	 *
+	 * @param path project relative component path,
+	 * @param newPath component new path.
+	 * @return this object.
+	 */
+	public OperatorRewriter addPath(String path, String newPath) {
+		paths.put(path, newPath);
+		return this;
+	}
+
+	/**
+	 * Add file move, e.g. component script renamed with component.
+	 *
+	 * @param file project relative file path,
+	 * @param newFile file new path.
+	 * @return this object.
+	 */
+	public OperatorRewriter addFile(String file, String newFile) {
+		files.put(file, newFile);
+		return this;
+	}
+
+	public boolean isEmpty() {
+		return paths.isEmpty() && files.isEmpty();
+	}
+
+	@Override
+	public int rewrite(Path file, FileContent content, OutputStream output) throws IOException {
+		String fileName = file.getFileName().toString();
+		boolean descriptor;
+		if (fileName.endsWith(".htm")) {
+			descriptor = false;
+		} else if (fileName.endsWith(".xml") && file.getParent() != null && fileName.equals(file.getParent().getFileName() + ".xml")) {
+			descriptor = true;
+		} else {
+			return 0;
+		}
+
+		int replacements;
+		try (Reader reader = reader(content)) {
+			replacements = scan(reader, null, descriptor);
+		} catch (NoSuchFileException e) {
+			return 0;
+		}
+		if (replacements == 0) {
+			return 0;
+		}
+		Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+		try (Reader reader = reader(content)) {
+			scan(reader, writer, descriptor);
+		}
+		writer.flush();
+		return replacements;
+	}
+
+	/**
+	 * Get new value for reference operator value or null if value is not affected by rules. Fragment, if any, is preserved.
+	 *
+	 * @param value reference operator value.
+	 * @return new value or null.
+	 */
+	public String rewriteReference(String value) {
+		int fragment = value.indexOf('#');
+		String path = OperatorsNaming.compoPath(value);
+		String newPath = rewritePath(path);
+		if (newPath == null) {
+			return null;
+		}
+		return fragment != -1 ? newPath + value.substring(fragment) : newPath;
+	}
+
+	/**
+	 * Get new value for script source or null if script is not affected by rules.
+	 *
+	 * @param src script source, project relative path.
+	 * @return new script source or null.
+	 */
+	public String rewriteScript(String src) {
+		String newFile = files.get(src);
+		return newFile != null ? newFile : rewritePath(src);
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/** Scan file and, if writer is not null, write rewritten content. Returns the number of values to rewrite. */
+	private int scan(Reader reader, Writer writer, boolean descriptor) throws IOException {
+		int[] replacements = new int[1];
+		LayoutScanner scanner = new LayoutScanner(reader, writer);
+		scanner.scan((tag, attributes) -> {
+			for (LayoutScanner.Attribute attribute : attributes) {
+				String newValue = null;
+				if (descriptor) {
+					if ((tag.equals("script") || tag.equals("dependency")) && attribute.getName().equals("src")) {
+						newValue = rewriteScript(attribute.getValue());
+					}
+				} else {
+					String operator = naming.operator(attribute.getName(), scanner.getWoodPrefixes());
+					if (operator != null && OperatorsNaming.isReference(operator)) {
+						newValue = rewriteReference(attribute.getValue());
+					}
+				}
+				if (newValue != null) {
+					attribute.setValue(newValue);
+					++replacements[0];
+				}
+			}
+		});
+		return replacements[0];
+	}
+
+	/** Apply the most specific directory rule to path; returns null if no rule applies. */
+	private String rewritePath(String path) {
+		String newPath = null;
+		int matchLength = -1;
+		for (Map.Entry<String, String> entry : paths.entrySet()) {
+			String prefix = entry.getKey();
+			if (prefix.length() > matchLength && (path.equals(prefix) || path.startsWith(prefix + '/'))) {
+				newPath = entry.getValue() + path.substring(prefix.length());
+				matchLength = prefix.length();
+			}
+		}
+		return newPath;
+	}
+
+	private static Reader reader(FileContent content) throws IOException {
+		return new BufferedReader(new InputStreamReader(content.openStream(), StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,103 @@
+package com.jslib.wood.tasks.util;
+
+import java.util.Set;
+
+/**
+ * Naming strategy for WOOD operators on layout files, as configured by <code>project.operators</code> property. Operator
+ * name is the same for all strategies, e.g. <code>compo</code>, but attribute name differs:
+ * <ul>
+ * <li>XMLNS - attribute with prefix bound to WOOD namespace, e.g. <code>w:compo</code>,
+ * <li>DATA_ATTR - custom data attribute, e.g. <code>data-compo</code>,
+ * <li>ATTR - plain attribute, e.g. <code>compo</code>.
+ * </ul>
+ */
+public enum OperatorsNaming {
+	XMLNS, DATA_ATTR, ATTR;
+
+	/** WOOD operators, in the order used by layout processing. */
+	public static final String[] OPERATORS = new String[] { "template", "editable", "content", "compo", "param" };
+
+	/** Operators with values referencing other components, by component path. */
+	private static final String[] REFERENCE_OPERATORS = new String[] { "template", "compo" };
+
+	/**
+	 * Get project operators naming strategy from <code>project.operators</code> property. If property is missing returns
+	 * {@link #ATTR}, the naming used by import since before the property existed; all tasks should use this method so that
+	 * layouts written by import are read with the same naming.
+	 *
+	 * @param context task context.
+	 * @return project operators naming strategy.
+	 */
+	public static OperatorsNaming of(TaskContext context) {
+		return context.get("project.operators", OperatorsNaming.class, ATTR.name());
+	}
+
+	/**
+	 * Get operator name for given attribute name or null if attribute is not a WOOD operator for this naming strategy.
+	 *
+	 * @param attrName attribute name, qualified name if has namespace prefix,
+	 * @param woodPrefixes namespace prefixes bound to WOOD namespace, used only by {@link #XMLNS}.
+	 * @return operator name or null.
+	 */
+	public String operator(String attrName, Set<String> woodPrefixes) {
+		String name;
+		switch (this) {
+		case XMLNS:
+			int separator = attrName.indexOf(':');
+			if (separator == -1 || !woodPrefixes.contains(attrName.substring(0, separator))) {
+				return null;
+			}
+			name = attrName.substring(separator + 1);
+			break;
+
+		case DATA_ATTR:
+			if (!attrName.startsWith("data-")) {
+				return null;
+			}
+			name = attrName.substring(5);
+			break;
+
+		default:
+			name = attrName;
+		}
+
+		for (String operator : OPERATORS) {
+			if (operator.equals(name)) {
+				return operator;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Test if operator value is a reference to a component path.
+	 *
+	 * @param operator operator name.
+	 * @return true if operator references a component.
+	 */
+	public static boolean isReference(String operator) {
+		for (String referenceOperator : REFERENCE_OPERATORS) {
+			if (referenceOperator.equals(operator)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get component path from reference operator value. Template operator value can have editable name as fragment, e.g.
+	 * <code>template/page#body</code>; fragment is not part of component path.
+	 *
+	 * @param value reference operator value.
+	 * @return component path.
+	 */
+	public static String compoPath(String value) {
+		int fragment = value.indexOf('#');
+		String path = fragment != -1 ? value.substring(0, fragment) : value;
+		path = path.trim();
+		if (path.endsWith("/")) {
+			path = path.substring(0, path.length() - 1);
+		}
+		return path;
+	}
+}
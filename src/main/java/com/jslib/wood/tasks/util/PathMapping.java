@@ -0,0 +1,71 @@
+package com.jslib.wood.tasks.util;
+
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jslib.docore.repo.RepositoryCoordinates;
+import com.jslib.dospi.TaskAbortException;
+
+/**
+ * Rules mapping component coordinates to project component paths, for unattended import. Rules are separated by semicolon
+ * and every rule has the form <code>pattern=template</code>. Pattern is a glob matched against
+ * <code>groupId/artifactId</code>; template is a project relative path that may contain <code>${groupId}</code>,
+ * <code>${artifactId}</code> and <code>${version}</code> variables. First matching rule wins.
+ * <p>
+ * Example: <code>com.jslib/*=lib/${artifactId}; **=compo/${artifactId}</code>.
+ */
+public class PathMapping {
+	private final List<Rule> rules = new ArrayList<>();
+
+	/**
+	 * Parse mapping rules.
+	 *
+	 * @param rules semicolon separated rules, possible empty.
+	 * @throws TaskAbortException if a rule is not well formed.
+	 */
+	public PathMapping(String rules) throws TaskAbortException {
+		for (String rule : rules.split(";")) {
+			if (rule.trim().isEmpty()) {
+				continue;
+			}
+			int separator = rule.indexOf('=');
+			if (separator <= 0 || separator == rule.length() - 1) {
+				throw new TaskAbortException("Invalid path mapping rule |%s|. Expected pattern=template.", rule.trim());
+			}
+			String pattern = rule.substring(0, separator).trim();
+			this.rules.add(new Rule(FileSystems.getDefault().getPathMatcher("glob:" + pattern), rule.substring(separator + 1).trim()));
+		}
+	}
+
+	public boolean isEmpty() {
+		return rules.isEmpty();
+	}
+
+	/**
+	 * Get project component path for given coordinates.
+	 *
+	 * @param coordinates component coordinates.
+	 * @return project relative component path, slash separated, or null if no rule matches.
+	 */
+	public String getPath(RepositoryCoordinates coordinates) {
+		for (Rule rule : rules) {
+			if (rule.matcher.matches(Paths.get(coordinates.getGroupId(), coordinates.getArtifactId()))) {
+				return rule.template.replace("${groupId}", coordinates.getGroupId()).replace("${artifactId}", coordinates.getArtifactId()).replace("${version}", coordinates.getVersion());
+			}
+		}
+		return null;
+	}
+
+	private static class Rule {
+		final PathMatcher matcher;
+		final String template;
+
+		Rule(PathMatcher matcher, String template) {
+			this.matcher = matcher;
+			this.template = template;
+		}
+	}
+}
@@ -0,0 +1,650 @@
+package com.jslib.wood.tasks.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.jslib.docore.repo.RepositoryCoordinates;
+
+import js.log.Log;
+import js.log.LogFactory;
+
+/**
+ * Persistent index of project directories and components. Index is stored on project cache directory, see
+ * {@link #CACHE_DIR}, and is refreshed incrementally: directory listing is reused if directory modification time is not
+ * changed and component descriptor header, see {@link DescriptorHeader}, is read again only if its modification time or size is changed.
+ * <p>
+ * A component is a directory that contains a descriptor file with the same name as the directory, e.g.
+ * <code>page/index/index.xml</code>. Descriptor root element is recorded - <code>compo</code>, <code>page</code> or
+ * <code>template</code>, together with component coordinates, if present.
+ * <p>
+ * Project tree is scanned in parallel, see {@link ScanTask}, and every directory records size, files count and newest
+ * modification time aggregated over all its descendants.
+ * <p>
+ * Hidden files and directories, that is, with name starting with dot, are not indexed. Symbolic links are not followed.
+ */
+public class ProjectIndex {
+	private static final Log log = LogFactory.getLog(ProjectIndex.class);
+
+	/** Project relative directory where WOOD tasks store their caches. */
+	public static final String CACHE_DIR = ".wood";
+
+	private static final String INDEX_FILE = "project.index";
+	private static final int FORMAT_VERSION = 2;
+
+	/** Project tree scanning is mostly file system bound; allow more workers than processors to overlap I/O latency. */
+	private static final ForkJoinPool pool = new ForkJoinPool(2 * Runtime.getRuntime().availableProcessors());
+
+	private final Path projectDir;
+	private final CacheFile cacheFile;
+
+	/** Indexed directories mapped by project relative path. Project root directory has empty path. */
+	private final Map<String, Directory> directories = new ConcurrentHashMap<>();
+
+	/** Components mapped by component name, that is, directory name. There can be many components with the same name. */
+	private final Map<String, List<Directory>> componentsByName = new HashMap<>();
+	/** Components mapped by coordinates key, see {@link #key(String, String, String)}. */
+	private final Map<String, Directory> componentsByCoordinates = new HashMap<>();
+
+	private boolean loaded;
+	/** Set by scanning tasks, possible from different threads. */
+	private volatile boolean dirty;
+
+	public ProjectIndex(Path projectDir) {
+		log.trace("ProjectIndex(projectDir)");
+		this.projectDir = projectDir;
+		this.cacheFile = new CacheFile(projectDir, INDEX_FILE, FORMAT_VERSION);
+	}
+
+	public Path getProjectDir() {
+		return projectDir;
+	}
+
+	/**
+	 * Get all indexed directories, in no particular order.
+	 *
+	 * @return indexed directories.
+	 */
+	public synchronized List<Directory> getDirectories() {
+		return new ArrayList<>(directories.values());
+	}
+
+	/**
+	 * Get all indexed files, in no particular order.
+	 *
+	 * @return absolute paths of the indexed files.
+	 */
+	public synchronized List<Path> getFiles() {
+		List<Path> files = new ArrayList<>();
+		for (Directory directory : directories.values()) {
+			Path dir = directory.path.isEmpty() ? projectDir : projectDir.resolve(directory.path);
+			for (FileEntry file : directory.files) {
+				files.add(dir.resolve(file.name));
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Synchronize this index with project file system. On first invocation load persisted index, if any, then scan project
+	 * tree for changes. If any change is detected index is saved back to project cache directory.
+	 *
+	 * @return this object.
+	 * @throws IOException if project tree scanning fails.
+	 */
+	public synchronized ProjectIndex refresh() throws IOException {
+		if (!loaded) {
+			load();
+			loaded = true;
+		}
+		scan();
+		if (dirty) {
+			updateLookupMaps();
+			save();
+			dirty = false;
+		}
+		return this;
+	}
+
+	/**
+	 * Synchronize only given directories, known to be changed, for example from file system watch events. Directory listing
+	 * and files attributes are updated for every given directory but sub-directories are scanned only if not already
+	 * indexed. Recursive aggregates are recomputed from memory, without file system access.
+	 * <p>
+	 * If this index was not loaded yet, performs a full {@link #refresh()}.
+	 *
+	 * @param dirPaths project relative paths of the changed directories.
+	 * @return this object.
+	 * @throws IOException if directories scanning fails.
+	 */
+	public synchronized ProjectIndex refresh(Collection<String> dirPaths) throws IOException {
+		if (!loaded) {
+			return refresh();
+		}
+		for (String path : dirPaths) {
+			Directory directory = scanDirectory(path, path.isEmpty() ? projectDir : projectDir.resolve(path));
+			if (directory == null) {
+				continue;
+			}
+			for (String subdir : directory.subdirs) {
+				String subdirPath = path.isEmpty() ? subdir : path + '/' + subdir;
+				if (!directories.containsKey(subdirPath)) {
+					try {
+						pool.invoke(new ScanTask(subdirPath, projectDir.resolve(subdirPath)));
+					} catch (UncheckedIOException e) {
+						throw e.getCause();
+					}
+				}
+			}
+		}
+		aggregate("");
+		if (dirty) {
+			updateLookupMaps();
+			save();
+			dirty = false;
+		}
+		return this;
+	}
+
+	/**
+	 * Get all components with requested descriptor root, sorted by component path.
+	 *
+	 * @param descriptorRoot descriptor root element, e.g. <code>compo</code>, <code>page</code> or <code>template</code>.
+	 * @return components list, possible empty.
+	 */
+	public synchronized List<Directory> getComponents(String descriptorRoot) {
+		List<Directory> components = new ArrayList<>();
+		for (Directory directory : directories.values()) {
+			if (descriptorRoot.equals(directory.root)) {
+				components.add(directory);
+			}
+		}
+		components.sort((d1, d2) -> d1.path.compareTo(d2.path));
+		return components;
+	}
+
+	/**
+	 * Get component by path or null if there is no component on requested path.
+	 *
+	 * @param compoPath project relative component path, slash separated.
+	 * @return component or null.
+	 */
+	public synchronized Directory getComponent(String compoPath) {
+		Directory directory = directories.get(compoPath);
+		return directory != null && directory.isComponent() ? directory : null;
+	}
+
+	/**
+	 * Find first component with given name and descriptor root. If there are many components with the same name the one
+	 * with lexicographically smaller path is returned.
+	 *
+	 * @param name component name, that is, component directory name,
+	 * @param descriptorRoot descriptor root element.
+	 * @return component or null if not found.
+	 */
+	public synchronized Directory findComponent(String name, String descriptorRoot) {
+		List<Directory> components = componentsByName.get(name);
+		if (components == null) {
+			return null;
+		}
+		for (Directory component : components) {
+			if (descriptorRoot.equals(component.root)) {
+				return component;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Find component with given coordinates, regardless descriptor root.
+	 *
+	 * @param coordinates component coordinates.
+	 * @return component or null if not found.
+	 */
+	public synchronized Directory findComponent(RepositoryCoordinates coordinates) {
+		return componentsByCoordinates.get(key(coordinates.getGroupId(), coordinates.getArtifactId(), coordinates.getVersion()));
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Scan project tree in parallel, one fork/join subtask per sub-directory. Every task returns its directory after
+	 * sub-directories tasks complete so that recursive size, files count and newest modification time are aggregated
+	 * bottom-up.
+	 */
+	private void scan() throws IOException {
+		try {
+			pool.invoke(new ScanTask("", projectDir));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private class ScanTask extends RecursiveTask<Directory> {
+		private static final long serialVersionUID = -2526213455418227044L;
+
+		private final String path;
+		private final Path dir;
+
+		public ScanTask(String path, Path dir) {
+			this.path = path;
+			this.dir = dir;
+		}
+
+		@Override
+		protected Directory compute() {
+			Directory directory;
+			try {
+				directory = scanDirectory(path, dir);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			if (directory == null) {
+				return null;
+			}
+
+			List<ScanTask> subtasks = new ArrayList<>();
+			for (String subdir : directory.subdirs) {
+				subtasks.add(new ScanTask(path.isEmpty() ? subdir : path + '/' + subdir, dir.resolve(subdir)));
+			}
+			invokeAll(subtasks);
+
+			List<Directory> subdirectories = new ArrayList<>();
+			for (ScanTask subtask : subtasks) {
+				Directory subdirectory = subtask.join();
+				if (subdirectory != null) {
+					subdirectories.add(subdirectory);
+				}
+			}
+			directory.aggregate(subdirectories);
+			return directory;
+		}
+	}
+
+	/**
+	 * Scan a single directory, not including sub-directories. Returns null if directory was removed meanwhile.
+	 */
+	private Directory scanDirectory(String path, Path dir) throws IOException {
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(dir, BasicFileAttributes.class);
+		} catch (NoSuchFileException e) {
+			remove(path);
+			return null;
+		}
+
+		Directory directory = directories.get(path);
+		long modified = attributes.lastModifiedTime().toMillis();
+		if (directory == null || directory.modified != modified) {
+			directory = list(path, dir, modified, directory);
+		} else {
+			restat(directory, dir);
+		}
+
+		FileEntry descriptorFile = directory.getFile(directory.name + ".xml");
+		if (descriptorFile == null) {
+			if (directory.root != null || directory.descriptorModified != 0) {
+				directory.setDescriptor(null, 0, null, null, null);
+				dirty = true;
+			}
+		} else if (descriptorFile.modified != directory.descriptorModified || descriptorFile.size != directory.descriptorSize) {
+			parseDescriptor(directory, dir.resolve(descriptorFile.name), descriptorFile);
+			dirty = true;
+		}
+		return directory;
+	}
+
+	private Directory list(String path, Path dir, long modified, Directory cachedDirectory) throws IOException {
+		Directory directory = new Directory(path, modified);
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path child : stream) {
+				String name = child.getFileName().toString();
+				// hidden files and directories are not project content, e.g. version control, index cache or temporary files
+				if (name.startsWith(".")) {
+					continue;
+				}
+				// symbolic links are not followed, as on project walk; a linked directory could create a cycle
+				BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+				if (attributes.isDirectory()) {
+					directory.subdirs.add(name);
+				} else if (attributes.isRegularFile()) {
+					directory.files.add(new FileEntry(name, attributes.size(), attributes.lastModifiedTime().toMillis()));
+				}
+			}
+		}
+		Collections.sort(directory.subdirs);
+
+		if (cachedDirectory != null) {
+			// keep descriptor data; scan logic decides if descriptor needs to be parsed again
+			directory.setDescriptor(cachedDirectory.root, cachedDirectory.descriptorModified, cachedDirectory.groupId, cachedDirectory.artifactId, cachedDirectory.version);
+			directory.descriptorSize = cachedDirectory.descriptorSize;
+			for (String subdir : cachedDirectory.subdirs) {
+				if (!directory.subdirs.contains(subdir)) {
+					remove(path.isEmpty() ? subdir : path + '/' + subdir);
+				}
+			}
+		}
+
+		directories.put(path, directory);
+		dirty = true;
+		return directory;
+	}
+
+	/**
+	 * Update size and modification time for files from a directory with unchanged listing. File content changes does not
+	 * update parent directory modification time.
+	 */
+	private void restat(Directory directory, Path dir) throws IOException {
+		for (FileEntry file : directory.files) {
+			BasicFileAttributes attributes;
+			try {
+				attributes = Files.readAttributes(dir.resolve(file.name), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+			} catch (NoSuchFileException e) {
+				continue;
+			}
+			long modified = attributes.lastModifiedTime().toMillis();
+			if (file.size != attributes.size() || file.modified != modified) {
+				file.size = attributes.size();
+				file.modified = modified;
+				dirty = true;
+			}
+		}
+	}
+
+	/** Recompute recursive aggregates for directory subtree, from memory. */
+	private Directory aggregate(String path) {
+		Directory directory = directories.get(path);
+		if (directory == null) {
+			return null;
+		}
+		List<Directory> subdirectories = new ArrayList<>();
+		for (String subdir : directory.subdirs) {
+			Directory subdirectory = aggregate(path.isEmpty() ? subdir : path + '/' + subdir);
+			if (subdirectory != null) {
+				subdirectories.add(subdirectory);
+			}
+		}
+		directory.aggregate(subdirectories);
+		return directory;
+	}
+
+	private void remove(String path) {
+		String prefix = path + '/';
+		if (directories.remove(path) != null) {
+			directories.keySet().removeIf(key -> key.startsWith(prefix));
+			dirty = true;
+		}
+	}
+
+	private static void parseDescriptor(Directory directory, Path descriptorFile, FileEntry fileEntry) {
+		DescriptorHeader header = null;
+		try {
+			header = DescriptorHeader.read(descriptorFile, false);
+		} catch (IOException e) {
+			log.warn("Invalid component descriptor %s: %s", descriptorFile, e.getMessage());
+		}
+		if (header != null) {
+			directory.setDescriptor(header.getRoot(), fileEntry.modified, header.getGroupId(), header.getArtifactId(), header.getVersion());
+		} else {
+			directory.setDescriptor(null, fileEntry.modified, null, null, null);
+		}
+		directory.descriptorSize = fileEntry.size;
+	}
+
+	private void updateLookupMaps() {
+		componentsByName.clear();
+		componentsByCoordinates.clear();
+
+		List<Directory> components = new ArrayList<>();
+		for (Directory directory : directories.values()) {
+			if (directory.isComponent()) {
+				components.add(directory);
+			}
+		}
+		components.sort((d1, d2) -> d1.path.compareTo(d2.path));
+
+		for (Directory component : components) {
+			componentsByName.computeIfAbsent(component.name, name -> new ArrayList<>()).add(component);
+			if (component.groupId != null && component.artifactId != null && component.version != null) {
+				componentsByCoordinates.putIfAbsent(key(component.groupId, component.artifactId, component.version), component);
+			}
+		}
+	}
+
+	private static String key(String groupId, String artifactId, String version) {
+		return groupId + ':' + artifactId + ':' + version;
+	}
+
+	// --------------------------------------------------------------------------------------------
+	// persistence
+
+	private void load() {
+		boolean success = cacheFile.load(stream -> {
+			int directoriesCount = stream.readInt();
+			for (int i = 0; i < directoriesCount; ++i) {
+				Directory directory = Directory.read(stream);
+				directories.put(directory.path, directory);
+			}
+		});
+		if (!success) {
+			directories.clear();
+		}
+		updateLookupMaps();
+	}
+
+	private void save() {
+		cacheFile.save(stream -> {
+			stream.writeInt(directories.size());
+			for (Directory directory : directories.values()) {
+				directory.write(stream);
+			}
+		});
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Indexed project directory. If directory contains a component descriptor, this directory is a component and
+	 * {@link #getRoot()} returns descriptor root element.
+	 */
+	public static class Directory {
+		private final String path;
+		private final String name;
+		private final long modified;
+		private final List<String> subdirs = new ArrayList<>();
+		private final List<FileEntry> files = new ArrayList<>();
+
+		/** Recursive size, files count and newest modification time, updated on every scan. */
+		private long totalSize;
+		private int filesCount;
+		private long newestModified;
+
+		private String root;
+		private long descriptorModified;
+		private long descriptorSize;
+		private String groupId;
+		private String artifactId;
+		private String version;
+
+		private Directory(String path, long modified) {
+			this.path = path;
+			this.name = path.substring(path.lastIndexOf('/') + 1);
+			this.modified = modified;
+		}
+
+		private void aggregate(List<Directory> subdirectories) {
+			totalSize = 0;
+			filesCount = files.size();
+			newestModified = modified;
+			for (FileEntry file : files) {
+				totalSize += file.size;
+				newestModified = Math.max(newestModified, file.modified);
+			}
+			for (Directory subdirectory : subdirectories) {
+				totalSize += subdirectory.totalSize;
+				filesCount += subdirectory.filesCount;
+				newestModified = Math.max(newestModified, subdirectory.newestModified);
+			}
+		}
+
+		private void setDescriptor(String root, long descriptorModified, String groupId, String artifactId, String version) {
+			this.root = root;
+			this.descriptorModified = descriptorModified;
+			this.groupId = groupId;
+			this.artifactId = artifactId;
+			this.version = version;
+		}
+
+		/** Project relative directory path, slash separated. */
+		public String getPath() {
+			return path;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/** Directory modification time, in milliseconds. */
+		public long getModified() {
+			return modified;
+		}
+
+		public boolean isComponent() {
+			return root != null;
+		}
+
+		/** Component descriptor root element or null if this directory is not a component. */
+		public String getRoot() {
+			return root;
+		}
+
+		public RepositoryCoordinates getCoordinates() {
+			return new RepositoryCoordinates(groupId, artifactId, version);
+		}
+
+		public List<String> getSubdirs() {
+			return Collections.unmodifiableList(subdirs);
+		}
+
+		public List<FileEntry> getFiles() {
+			return Collections.unmodifiableList(files);
+		}
+
+		public FileEntry getFile(String fileName) {
+			for (FileEntry file : files) {
+				if (file.name.equals(fileName)) {
+					return file;
+				}
+			}
+			return null;
+		}
+
+		/** Total size of the files from this directory, not including sub-directories. */
+		public long getSize() {
+			long size = 0;
+			for (FileEntry file : files) {
+				size += file.size;
+			}
+			return size;
+		}
+
+		/** Total size of the files from this directory and all its descendants. */
+		public long getTotalSize() {
+			return totalSize;
+		}
+
+		/** Count of the files from this directory and all its descendants. */
+		public int getFilesCount() {
+			return filesCount;
+		}
+
+		/** Newest modification time, in milliseconds, of this directory and all its descendants, files included. */
+		public long getNewestModified() {
+			return newestModified;
+		}
+
+		private void write(DataOutputStream stream) throws IOException {
+			stream.writeUTF(path);
+			stream.writeLong(modified);
+			stream.writeInt(subdirs.size());
+			for (String subdir : subdirs) {
+				stream.writeUTF(subdir);
+			}
+			stream.writeInt(files.size());
+			for (FileEntry file : files) {
+				stream.writeUTF(file.name);
+				stream.writeLong(file.size);
+				stream.writeLong(file.modified);
+			}
+			CacheFile.writeString(stream, root);
+			stream.writeLong(descriptorModified);
+			stream.writeLong(descriptorSize);
+			CacheFile.writeString(stream, groupId);
+			CacheFile.writeString(stream, artifactId);
+			CacheFile.writeString(stream, version);
+		}
+
+		private static Directory read(DataInputStream stream) throws IOException {
+			Directory directory = new Directory(stream.readUTF(), stream.readLong());
+			int subdirsCount = stream.readInt();
+			for (int i = 0; i < subdirsCount; ++i) {
+				directory.subdirs.add(stream.readUTF());
+			}
+			int filesCount = stream.readInt();
+			for (int i = 0; i < filesCount; ++i) {
+				directory.files.add(new FileEntry(stream.readUTF(), stream.readLong(), stream.readLong()));
+			}
+			directory.root = CacheFile.readString(stream);
+			directory.descriptorModified = stream.readLong();
+			directory.descriptorSize = stream.readLong();
+			directory.groupId = CacheFile.readString(stream);
+			directory.artifactId = CacheFile.readString(stream);
+			directory.version = CacheFile.readString(stream);
+			return directory;
+		}
+	}
+
+	/**
+	 * File entry from an indexed directory.
+	 */
+	public static class FileEntry {
+		private final String name;
+		private long size;
+		private long modified;
+
+		private FileEntry(String name, long size, long modified) {
+			this.name = name;
+			this.size = size;
+			this.modified = modified;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		/** File modification time, in milliseconds. */
+		public long getModified() {
+			return modified;
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package com.jslib.wood.tasks.util;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.jslib.docore.IFiles;
+
+import js.log.Log;
+import js.log.LogFactory;
+
+/**
+ * Session scoped, in-memory model of the current project: components, pages and templates from {@link ProjectIndex} and
+ * layout files references from {@link UsageGraph} and variables from {@link VariableIndex}. After first access project directories are watched with
+ * {@link WatchService} and only directories reported as changed are scanned again, so that repeated tasks invocations from
+ * the same shell session do not access file system unless project was changed.
+ * <p>
+ * If watch service is not available or fails, for example because watches limit is reached, model falls back to full
+ * incremental refresh on every access. Tasks that change project files should call {@link #refresh()} before querying the
+ * model since watch events are delivered asynchronously.
+ */
+@Singleton
+public class ProjectModel {
+	private static final Log log = LogFactory.getLog(ProjectModel.class);
+
+	private final IFiles files;
+
+	private ProjectIndex index;
+	private UsageGraph usageGraph;
+	private VariableIndex variableIndex;
+
+	private WatchService watchService;
+	/** Registered watch keys mapped to project relative directory path. */
+	private final Map<WatchKey, String> watchKeys = new ConcurrentHashMap<>();
+	/** Project relative paths of the directories changed since last refresh. */
+	private final Set<String> changedDirs = ConcurrentHashMap.newKeySet();
+	/** Set if watch events were lost or watch service failed; requires full refresh. */
+	private volatile boolean stale;
+
+	@Inject
+	public ProjectModel(IFiles files) {
+		log.trace("ProjectModel(files)");
+		this.files = files;
+	}
+
+	/**
+	 * Get project index synchronized with project file system.
+	 *
+	 * @return project index.
+	 * @throws IOException if project scanning fails.
+	 */
+	public synchronized ProjectIndex getIndex() throws IOException {
+		Path projectDir = files.getProjectDir();
+		if (index == null || !index.getProjectDir().equals(projectDir)) {
+			open(projectDir);
+		} else if (stale || watchService == null) {
+			stale = false;
+			changedDirs.clear();
+			index.refresh();
+		} else if (!changedDirs.isEmpty()) {
+			Set<String> dirPaths = new HashSet<>(changedDirs);
+			changedDirs.removeAll(dirPaths);
+			index.refresh(dirPaths);
+		}
+		return index;
+	}
+
+	/**
+	 * Get component usage graph synchronized with project file system. If operators naming differs from that of the current
+	 * graph, graph is rebuilt.
+	 *
+	 * @param naming project operators naming strategy.
+	 * @return usage graph.
+	 * @throws IOException if project scanning or layout files parsing fails.
+	 */
+	public synchronized UsageGraph getUsageGraph(OperatorsNaming naming) throws IOException {
+		ProjectIndex index = getIndex();
+		if (usageGraph == null || usageGraph.getNaming() != naming) {
+			usageGraph = new UsageGraph(index, naming);
+		}
+		return usageGraph.refresh();
+	}
+
+	/**
+	 * Get project variables index synchronized with project file system.
+	 *
+	 * @return variables index.
+	 * @throws IOException if project scanning fails.
+	 */
+	public synchronized VariableIndex getVariableIndex() throws IOException {
+		ProjectIndex index = getIndex();
+		if (variableIndex == null) {
+			variableIndex = new VariableIndex(index);
+		}
+		return variableIndex.refresh();
+	}
+
+	/**
+	 * Force full incremental refresh on next access. To be used by tasks after changing project files.
+	 */
+	public void refresh() {
+		stale = true;
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	private void open(Path projectDir) throws IOException {
+		close();
+		index = new ProjectIndex(projectDir).refresh();
+		usageGraph = null;
+		variableIndex = null;
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+			WatchService watchService = this.watchService;
+			for (ProjectIndex.Directory directory : index.getDirectories()) {
+				register(watchService, projectDir, directory.getPath());
+			}
+			Thread watcher = new Thread(() -> watch(watchService, projectDir), "Project Model Watcher");
+			watcher.setDaemon(true);
+			watcher.start();
+			log.debug("Watch %d directories from project %s.", watchKeys.size(), projectDir);
+		} catch (IOException e) {
+			log.warn("Cannot watch project %s: %s. Fall back to full refresh.", projectDir, e.getMessage());
+			close();
+		}
+	}
+
+	private void close() {
+		watchKeys.clear();
+		changedDirs.clear();
+		stale = false;
+		if (watchService != null) {
+			try {
+				watchService.close();
+			} catch (IOException e) {
+				log.warn("Fail to close project watch service: %s", e.getMessage());
+			}
+			watchService = null;
+		}
+	}
+
+	private void register(WatchService watchService, Path projectDir, String dirPath) throws IOException {
+		Path dir = dirPath.isEmpty() ? projectDir : projectDir.resolve(dirPath);
+		watchKeys.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dirPath);
+	}
+
+	private void watch(WatchService watchService, Path projectDir) {
+		for (;;) {
+			WatchKey key;
+			try {
+				key = watchService.take();
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+
+			String dirPath = watchKeys.get(key);
+			if (dirPath != null) {
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == OVERFLOW) {
+						stale = true;
+						continue;
+					}
+					String name = event.context().toString();
+					// hidden files and directories are not indexed; this excludes project cache directory too
+					if (name.startsWith(".")) {
+						continue;
+					}
+					changedDirs.add(dirPath);
+					if (event.kind() == ENTRY_CREATE) {
+						registerTree(watchService, projectDir, dirPath.isEmpty() ? name : dirPath + '/' + name);
+					}
+				}
+			}
+
+			if (!key.reset()) {
+				// watched directory was removed
+				watchKeys.remove(key);
+			}
+		}
+	}
+
+	/** Register newly created directory and all its not hidden descendants. */
+	private void registerTree(WatchService watchService, Path projectDir, String dirPath) {
+		Path dir = projectDir.resolve(dirPath);
+		if (!Files.isDirectory(dir)) {
+			return;
+		}
+		try {
+			Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+					if (dir.getFileName().toString().startsWith(".")) {
+						return FileVisitResult.SKIP_SUBTREE;
+					}
+					register(watchService, projectDir, projectDir.relativize(dir).toString().replace('\\', '/'));
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			stale = true;
+		}
+	}
+}
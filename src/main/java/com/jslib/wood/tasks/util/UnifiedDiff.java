@@ -0,0 +1,228 @@
+package com.jslib.wood.tasks.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Line based unified diff, as produced by <code>diff -u</code>. Edit script is computed with Myers algorithm on the lines
+ * left after removing common prefix and suffix; refactoring edits are few and local so that the compared range and the
+ * number of edit steps are small even for large files.
+ */
+public final class UnifiedDiff {
+	private static final int CONTEXT = 3;
+
+	private static final char EQUAL = ' ';
+	private static final char DELETE = '-';
+	private static final char INSERT = '+';
+
+	private UnifiedDiff() {
+	}
+
+	/**
+	 * Format unified diff of two texts. Returns empty string if texts are equal.
+	 *
+	 * @param oldName old file name, for diff header,
+	 * @param newName new file name, for diff header,
+	 * @param oldText old file content,
+	 * @param newText new file content.
+	 * @return unified diff, possible empty.
+	 */
+	public static String format(String oldName, String newName, String oldText, String newText) {
+		List<String> a = lines(oldText);
+		List<String> b = lines(newText);
+		List<Op> ops = diff(a, b);
+
+		StringBuilder builder = new StringBuilder();
+		int index = 0;
+		while ((index = nextChange(ops, index)) != -1) {
+			if (builder.length() == 0) {
+				builder.append("--- a/").append(oldName).append('\n');
+				builder.append("+++ b/").append(newName).append('\n');
+			}
+			int start = Math.max(0, index - CONTEXT);
+			// extend hunk while next change is close enough for contexts to overlap
+			int end = index;
+			for (int next = nextChange(ops, end + 1); next != -1 && next - lastChange(ops, end) <= 2 * CONTEXT + 1; next = nextChange(ops, end + 1)) {
+				end = next;
+			}
+			end = lastChange(ops, end);
+			int stop = Math.min(ops.size(), end + CONTEXT + 1);
+			hunk(builder, a, b, ops.subList(start, stop));
+			index = stop;
+		}
+		return builder.toString();
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/** Append hunk header and lines. */
+	private static void hunk(StringBuilder builder, List<String> a, List<String> b, List<Op> ops) {
+		int oldLength = 0;
+		int newLength = 0;
+		for (Op op : ops) {
+			if (op.type != INSERT) {
+				++oldLength;
+			}
+			if (op.type != DELETE) {
+				++newLength;
+			}
+		}
+		Op first = ops.get(0);
+		builder.append("@@ -").append(range(first.oldIndex, oldLength)).append(" +").append(range(first.newIndex, newLength)).append(" @@\n");
+		for (Op op : ops) {
+			String line = op.type == INSERT ? b.get(op.newIndex) : a.get(op.oldIndex);
+			builder.append(op.type);
+			if (line.endsWith("\n")) {
+				builder.append(line);
+			} else {
+				builder.append(line).append("\n\\ No newline at end of file\n");
+			}
+		}
+	}
+
+	private static String range(int index, int length) {
+		if (length == 1) {
+			return Integer.toString(index + 1);
+		}
+		// by convention empty range start is the line before
+		return (length == 0 ? index : index + 1) + "," + length;
+	}
+
+	private static int nextChange(List<Op> ops, int index) {
+		for (; index < ops.size(); ++index) {
+			if (ops.get(index).type != EQUAL) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/** Return index of the last change from consecutive changes block starting at given index. */
+	private static int lastChange(List<Op> ops, int index) {
+		while (index + 1 < ops.size() && ops.get(index + 1).type != EQUAL) {
+			++index;
+		}
+		return index;
+	}
+
+	/** Split text into lines, keeping line terminator; last line has no terminator if text does not end with new line. */
+	private static List<String> lines(String text) {
+		List<String> lines = new ArrayList<>();
+		int start = 0;
+		for (int i = 0; i < text.length(); ++i) {
+			if (text.charAt(i) == '\n') {
+				lines.add(text.substring(start, i + 1));
+				start = i + 1;
+			}
+		}
+		if (start < text.length()) {
+			lines.add(text.substring(start));
+		}
+		return lines;
+	}
+
+	/** Compute edit script: common prefix and suffix are equal, middle range is compared with Myers algorithm. */
+	private static List<Op> diff(List<String> a, List<String> b) {
+		int prefix = 0;
+		while (prefix < a.size() && prefix < b.size() && a.get(prefix).equals(b.get(prefix))) {
+			++prefix;
+		}
+		int suffix = 0;
+		while (suffix < a.size() - prefix && suffix < b.size() - prefix && a.get(a.size() - 1 - suffix).equals(b.get(b.size() - 1 - suffix))) {
+			++suffix;
+		}
+
+		List<Op> ops = new ArrayList<>();
+		for (int i = 0; i < prefix; ++i) {
+			ops.add(new Op(EQUAL, i, i));
+		}
+		ops.addAll(myers(a.subList(prefix, a.size() - suffix), b.subList(prefix, b.size() - suffix), prefix));
+		for (int i = suffix; i > 0; --i) {
+			ops.add(new Op(EQUAL, a.size() - i, b.size() - i));
+		}
+		return ops;
+	}
+
+	/** Myers shortest edit script; returned operations indices are shifted by offset. */
+	private static List<Op> myers(List<String> a, List<String> b, int offset) {
+		int n = a.size();
+		int m = b.size();
+		int max = n + m;
+		int[] v = new int[2 * max + 2];
+		List<int[]> trace = new ArrayList<>();
+
+		search: for (int d = 0; d <= max; ++d) {
+			trace.add(v.clone());
+			for (int k = -d; k <= d; k += 2) {
+				int x;
+				if (k == -d || (k != d && v[max + k - 1] < v[max + k + 1])) {
+					x = v[max + k + 1];
+				} else {
+					x = v[max + k - 1] + 1;
+				}
+				int y = x - k;
+				while (x < n && y < m && a.get(x).equals(b.get(y))) {
+					++x;
+					++y;
+				}
+				v[max + k] = x;
+				if (x >= n && y >= m) {
+					break search;
+				}
+			}
+		}
+
+		// backtrack from end to start using saved V arrays
+		List<Op> ops = new ArrayList<>();
+		int x = n;
+		int y = m;
+		for (int d = trace.size() - 1; d > 0; --d) {
+			int[] previous = trace.get(d);
+			int k = x - y;
+			int previousK;
+			if (k == -d || (k != d && previous[max + k - 1] < previous[max + k + 1])) {
+				previousK = k + 1;
+			} else {
+				previousK = k - 1;
+			}
+			int previousX = previous[max + previousK];
+			int previousY = previousX - previousK;
+			while (x > previousX && y > previousY) {
+				--x;
+				--y;
+				ops.add(new Op(EQUAL, offset + x, offset + y));
+			}
+			if (previousK == k + 1) {
+				ops.add(new Op(INSERT, offset + previousX, offset + previousY));
+			} else {
+				ops.add(new Op(DELETE, offset + previousX, offset + previousY));
+			}
+			x = previousX;
+			y = previousY;
+		}
+		while (x > 0 && y > 0) {
+			--x;
+			--y;
+			ops.add(new Op(EQUAL, offset + x, offset + y));
+		}
+
+		List<Op> forward = new ArrayList<>(ops.size());
+		for (int i = ops.size() - 1; i >= 0; --i) {
+			forward.add(ops.get(i));
+		}
+		return forward;
+	}
+
+	/** Edit operation with the indices of old and new lines where it applies. */
+	private static class Op {
+		final char type;
+		final int oldIndex;
+		final int newIndex;
+
+		Op(char type, int oldIndex, int newIndex) {
+			this.type = type;
+			this.oldIndex = oldIndex;
+			this.newIndex = newIndex;
+		}
+	}
+}
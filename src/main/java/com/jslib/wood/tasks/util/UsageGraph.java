@@ -0,0 +1,321 @@
+package com.jslib.wood.tasks.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+
+import js.log.Log;
+import js.log.LogFactory;
+
+/**
+ * Component usage graph built from WOOD reference operators - <code>compo</code> and <code>template</code>, declared on
+ * project layout files, and from script <code>src</code> attributes declared on component descriptors, including script
+ * dependencies. A script reference is an edge to the component owning the script file. Every layout and descriptor file is
+ * parsed once with {@link LayoutScanner} and its references are stored on project cache directory; on refresh only files
+ * with changed size or modification time are parsed again.
+ * <p>
+ * Graph keeps reverse edges, from component path to using layout files, so that usage queries cost is proportional with
+ * the number of users. Component paths are compared exactly; a reference to <code>nav-bar</code> is not a usage of
+ * <code>nav</code> component.
+ */
+public class UsageGraph {
+	private static final Log log = LogFactory.getLog(UsageGraph.class);
+
+	private static final String GRAPH_FILE = "usage.index";
+	private static final int FORMAT_VERSION = 2;
+
+	private final ProjectIndex index;
+	private final OperatorsNaming naming;
+	private final CacheFile cacheFile;
+
+	/** Layout and descriptor files mapped by project relative path. */
+	private final Map<String, Layout> layouts = new HashMap<>();
+	/** Reverse edges: component path mapped to project relative paths of the layout and descriptor files using it. */
+	private final Map<String, Set<String>> users = new HashMap<>();
+
+	private boolean loaded;
+	private boolean dirty;
+
+	public UsageGraph(ProjectIndex index, OperatorsNaming naming) {
+		log.trace("UsageGraph(index, naming)");
+		this.index = index;
+		this.naming = naming;
+		this.cacheFile = new CacheFile(index.getProjectDir(), GRAPH_FILE, FORMAT_VERSION);
+	}
+
+	public OperatorsNaming getNaming() {
+		return naming;
+	}
+
+	/**
+	 * Parse layout and descriptor files changed since last refresh, as reported by project index. Project index should be refreshed by
+	 * caller. If any change is detected graph is saved back to project cache directory.
+	 *
+	 * @return this object.
+	 * @throws IOException if layout or descriptor file reading fails.
+	 */
+	public synchronized UsageGraph refresh() throws IOException {
+		if (!loaded) {
+			load();
+			loaded = true;
+		}
+
+		Set<String> layoutPaths = new HashSet<>();
+		for (ProjectIndex.Directory directory : index.getDirectories()) {
+			String descriptorName = directory.isComponent() ? directory.getName() + ".xml" : null;
+			for (ProjectIndex.FileEntry file : directory.getFiles()) {
+				if (!file.getName().endsWith(".htm") && !file.getName().equals(descriptorName)) {
+					continue;
+				}
+				String layoutPath = path(directory.getPath(), file.getName());
+				layoutPaths.add(layoutPath);
+
+				Layout layout = layouts.get(layoutPath);
+				if (layout == null || layout.size != file.getSize() || layout.modified != file.getModified()) {
+					layout = parse(layoutPath, file);
+					if (layout != null) {
+						layouts.put(layoutPath, layout);
+					}
+					dirty = true;
+				}
+			}
+		}
+		if (layouts.keySet().retainAll(layoutPaths)) {
+			dirty = true;
+		}
+
+		if (dirty) {
+			updateUsers();
+			save();
+			dirty = false;
+		}
+		return this;
+	}
+
+	/**
+	 * Get files using component, that is, layout files with reference operators to given component path and descriptors
+	 * with script references to component scripts. Returned list is sorted.
+	 *
+	 * @param compoPath project relative component path.
+	 * @return project relative paths of the using layout and descriptor files, possible empty.
+	 */
+	public synchronized List<String> getUsers(String compoPath) {
+		Set<String> layoutPaths = users.get(OperatorsNaming.compoPath(compoPath));
+		return layoutPaths != null ? new ArrayList<>(layoutPaths) : Collections.emptyList();
+	}
+
+	/**
+	 * Get paths of the components using given component, that is, directories containing using layout or descriptor files.
+	 *
+	 * @param compoPath project relative component path.
+	 * @return project relative paths of the using components, sorted, possible empty.
+	 */
+	public synchronized Set<String> getUserComponents(String compoPath) {
+		Set<String> compoPaths = new TreeSet<>();
+		for (String layoutPath : getUsers(compoPath)) {
+			compoPaths.add(parent(layoutPath));
+		}
+		// component descriptor declares component own script
+		compoPaths.remove(OperatorsNaming.compoPath(compoPath));
+		return compoPaths;
+	}
+
+	/**
+	 * Get components referenced by given component, that is, references from all layout files of the component directory
+	 * and script references from component descriptor.
+	 *
+	 * @param compoPath project relative component path.
+	 * @return project relative paths of the referenced components, sorted, possible empty.
+	 */
+	public synchronized Set<String> getDependencies(String compoPath) {
+		Set<String> compoPaths = new TreeSet<>();
+		ProjectIndex.Directory component = index.getComponent(OperatorsNaming.compoPath(compoPath));
+		if (component == null) {
+			return compoPaths;
+		}
+		for (ProjectIndex.FileEntry file : component.getFiles()) {
+			Layout layout = layouts.get(path(component.getPath(), file.getName()));
+			if (layout != null) {
+				compoPaths.addAll(layout.references);
+			}
+		}
+		// component descriptor declares component own script
+		compoPaths.remove(component.getPath());
+		return compoPaths;
+	}
+
+	/**
+	 * Get pages that ultimately include given component, directly or through any chain of components and templates.
+	 *
+	 * @param compoPath project relative component path.
+	 * @return project relative paths of the including pages, sorted, possible empty.
+	 */
+	public synchronized Set<String> getPages(String compoPath) {
+		Set<String> pages = new TreeSet<>();
+		Set<String> visited = new HashSet<>();
+		Queue<String> queue = new LinkedList<>();
+		queue.add(OperatorsNaming.compoPath(compoPath));
+
+		while (!queue.isEmpty()) {
+			for (String userPath : getUserComponents(queue.remove())) {
+				if (!visited.add(userPath)) {
+					continue;
+				}
+				ProjectIndex.Directory user = index.getComponent(userPath);
+				if (user != null && "page".equals(user.getRoot())) {
+					pages.add(userPath);
+				}
+				queue.add(userPath);
+			}
+		}
+		return pages;
+	}
+
+	/**
+	 * Get components reachable from project pages, following reference operators and script references. Pages are included.
+	 * Every reachable component is visited once.
+	 *
+	 * @return project relative paths of the reachable components, sorted.
+	 */
+	public synchronized Set<String> getReachableComponents() {
+		Set<String> reachable = new TreeSet<>();
+		Queue<String> queue = new LinkedList<>();
+		for (ProjectIndex.Directory page : index.getComponents("page")) {
+			reachable.add(page.getPath());
+			queue.add(page.getPath());
+		}
+		while (!queue.isEmpty()) {
+			for (String compoPath : getDependencies(queue.remove())) {
+				if (reachable.add(compoPath)) {
+					queue.add(compoPath);
+				}
+			}
+		}
+		return reachable;
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	private Layout parse(String layoutPath, ProjectIndex.FileEntry file) throws IOException {
+		Layout layout = new Layout(file.getSize(), file.getModified());
+		Path layoutFile = index.getProjectDir().resolve(layoutPath);
+		// malformed characters are replaced and do not abort scanning
+		try (Reader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(layoutFile), StandardCharsets.UTF_8))) {
+			LayoutScanner scanner = new LayoutScanner(reader);
+			if (layoutPath.endsWith(".xml")) {
+				scanner.scan((tag, attributes) -> {
+					if (!tag.equals("script") && !tag.equals("dependency")) {
+						return;
+					}
+					for (LayoutScanner.Attribute attribute : attributes) {
+						// third party scripts loaded by URL are not project components
+						if (attribute.getName().equals("src") && !attribute.getValue().contains("://")) {
+							layout.references.add(parent(attribute.getValue()));
+						}
+					}
+				});
+				return layout;
+			}
+			scanner.scan((tag, attributes) -> {
+				for (LayoutScanner.Attribute attribute : attributes) {
+					String operator = naming.operator(attribute.getName(), scanner.getWoodPrefixes());
+					if (operator != null && OperatorsNaming.isReference(operator)) {
+						layout.references.add(OperatorsNaming.compoPath(attribute.getValue()));
+					}
+				}
+			});
+		} catch (NoSuchFileException e) {
+			// layout file removed after index refresh; it will be discarded on next refresh
+			return null;
+		}
+		return layout;
+	}
+
+	private void updateUsers() {
+		users.clear();
+		layouts.forEach((layoutPath, layout) -> {
+			for (String reference : layout.references) {
+				users.computeIfAbsent(reference, compoPath -> new TreeSet<>()).add(layoutPath);
+			}
+		});
+	}
+
+	private static String path(String dirPath, String fileName) {
+		return dirPath.isEmpty() ? fileName : dirPath + '/' + fileName;
+	}
+
+	private static String parent(String path) {
+		int separator = path.lastIndexOf('/');
+		return separator != -1 ? path.substring(0, separator) : "";
+	}
+
+	private void load() {
+		boolean success = cacheFile.load(stream -> {
+			if (!naming.name().equals(stream.readUTF())) {
+				// operators naming strategy changed; graph should be rebuilt
+				throw new IOException("Operators naming changed.");
+			}
+			int layoutsCount = stream.readInt();
+			for (int i = 0; i < layoutsCount; ++i) {
+				String layoutPath = stream.readUTF();
+				Layout layout = new Layout(stream.readLong(), stream.readLong());
+				int referencesCount = stream.readInt();
+				for (int j = 0; j < referencesCount; ++j) {
+					layout.references.add(stream.readUTF());
+				}
+				layouts.put(layoutPath, layout);
+			}
+		});
+		if (!success) {
+			layouts.clear();
+		}
+		updateUsers();
+	}
+
+	private void save() {
+		cacheFile.save(stream -> {
+			stream.writeUTF(naming.name());
+			stream.writeInt(layouts.size());
+			for (Map.Entry<String, Layout> entry : layouts.entrySet()) {
+				Layout layout = entry.getValue();
+				stream.writeUTF(entry.getKey());
+				stream.writeLong(layout.size);
+				stream.writeLong(layout.modified);
+				stream.writeInt(layout.references.size());
+				for (String reference : layout.references) {
+					stream.writeUTF(reference);
+				}
+			}
+		});
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/** Layout or descriptor file with its references. */
+	private static class Layout {
+		final long size;
+		final long modified;
+		/** Paths of the components referenced by this layout. */
+		final Set<String> references = new HashSet<>();
+
+		Layout(long size, long modified) {
+			this.size = size;
+			this.modified = modified;
+		}
+	}
+}
@@ -0,0 +1,448 @@
+package com.jslib.wood.tasks.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import js.log.Log;
+import js.log.LogFactory;
+
+/**
+ * Project variables definitions and references, with their file offsets. A variables file is an XML file whose root is a
+ * WOOD variables type, e.g. <code>string</code> or <code>color</code>; root children are variables definitions, named by
+ * element tag. XML files with other roots, e.g. descriptors or third party configuration, are ignored. A variable
+ * reference has the form <code>@type/name</code> and can be present on layouts, styles, scripts, descriptors and JSON
+ * files.
+ * <p>
+ * Files are scanned as bytes, without XML parsing, and only files changed since last refresh, as reported by project index,
+ * are scanned again; changed files are scanned in parallel. Index is stored on project cache directory.
+ * <p>
+ * For every definition both start and end tag name offsets are recorded, so that a variable can be renamed by rewriting
+ * exactly the recorded offsets, see {@link OffsetRewriter}.
+ */
+public class VariableIndex {
+	private static final Log log = LogFactory.getLog(VariableIndex.class);
+
+	/** WOOD variable types, that is, roots of the variables files; other XML files, e.g. descriptors, are not indexed. */
+	private static final Set<String> VARIABLE_TYPES = new HashSet<>(Arrays.asList("string", "text", "color", "style", "link", "tooltip"));
+	/** Extensions of the files scanned for variable references. */
+	public static final Set<String> REFERENCE_FILE_EXTENSIONS = new HashSet<>(Arrays.asList("htm", "css", "js", "xml", "json"));
+
+	private static final String INDEX_FILE = "variables.index";
+	private static final int FORMAT_VERSION = 2;
+
+	private final ProjectIndex index;
+	private final CacheFile cacheFile;
+
+	/** Scanned files mapped by project relative path. */
+	private final Map<String, FileVariables> files = new ConcurrentHashMap<>();
+
+	/** Definitions occurrences mapped by variable key, see {@link #key(String, String)}. */
+	private final Map<String, List<Occurrence>> definitions = new HashMap<>();
+	/** References occurrences mapped by variable key. */
+	private final Map<String, List<Occurrence>> references = new HashMap<>();
+
+	private boolean loaded;
+
+	public VariableIndex(ProjectIndex index) {
+		log.trace("VariableIndex(index)");
+		this.index = index;
+		this.cacheFile = new CacheFile(index.getProjectDir(), INDEX_FILE, FORMAT_VERSION);
+	}
+
+	/**
+	 * Scan files changed since last refresh, as reported by project index. Project index should be refreshed by caller.
+	 *
+	 * @return this object.
+	 * @throws IOException if file reading fails.
+	 */
+	public synchronized VariableIndex refresh() throws IOException {
+		if (!loaded) {
+			load();
+			loaded = true;
+		}
+
+		Set<String> filePaths = new HashSet<>();
+		Map<String, ProjectIndex.FileEntry> changedFiles = new HashMap<>();
+		for (ProjectIndex.Directory directory : index.getDirectories()) {
+			for (ProjectIndex.FileEntry file : directory.getFiles()) {
+				if (!REFERENCE_FILE_EXTENSIONS.contains(extension(file.getName()))) {
+					continue;
+				}
+				String filePath = directory.getPath().isEmpty() ? file.getName() : directory.getPath() + '/' + file.getName();
+				filePaths.add(filePath);
+				FileVariables variables = files.get(filePath);
+				if (variables == null || variables.size != file.getSize() || variables.modified != file.getModified()) {
+					changedFiles.put(filePath, file);
+				}
+			}
+		}
+
+		boolean dirty = files.keySet().retainAll(filePaths);
+		if (!changedFiles.isEmpty()) {
+			try {
+				changedFiles.entrySet().parallelStream().forEach(changedFile -> {
+					try {
+						FileVariables variables = scan(changedFile.getKey(), changedFile.getValue());
+						if (variables != null) {
+							files.put(changedFile.getKey(), variables);
+						}
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			dirty = true;
+		}
+
+		if (dirty) {
+			updateLookupMaps();
+			save();
+		}
+		return this;
+	}
+
+	/**
+	 * Get variable definitions: for every definition, both start and end tag name offsets.
+	 *
+	 * @param type variable type,
+	 * @param name variable name.
+	 * @return definitions occurrences, possible empty.
+	 */
+	public synchronized List<Occurrence> getDefinitions(String type, String name) {
+		return Collections.unmodifiableList(definitions.getOrDefault(key(type, name), Collections.emptyList()));
+	}
+
+	/**
+	 * Get variable references. Every occurrence offset points to reference at sign.
+	 *
+	 * @param type variable type,
+	 * @param name variable name.
+	 * @return references occurrences, possible empty.
+	 */
+	public synchronized List<Occurrence> getReferences(String type, String name) {
+		return Collections.unmodifiableList(references.getOrDefault(key(type, name), Collections.emptyList()));
+	}
+
+	/**
+	 * Get variables defined but not referenced, as references, e.g. <code>@string/title</code>, mapped to files where are
+	 * defined.
+	 *
+	 * @return unused variables, sorted, possible empty.
+	 */
+	public synchronized Map<String, Set<String>> getUnusedVariables() {
+		Map<String, Set<String>> unused = new TreeMap<>();
+		definitions.forEach((key, occurrences) -> {
+			if (!references.containsKey(key)) {
+				Set<String> filePaths = unused.computeIfAbsent('@' + key, k -> new TreeSet<>());
+				for (Occurrence occurrence : occurrences) {
+					filePaths.add(occurrence.file);
+				}
+			}
+		});
+		return unused;
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	private FileVariables scan(String filePath, ProjectIndex.FileEntry file) throws IOException {
+		byte[] content;
+		try {
+			content = Files.readAllBytes(index.getProjectDir().resolve(filePath));
+		} catch (NoSuchFileException e) {
+			// file removed after index refresh; it will be discarded on next refresh
+			return null;
+		}
+		FileVariables variables = new FileVariables(file.getSize(), file.getModified());
+		scanReferences(content, variables);
+		if (filePath.endsWith(".xml")) {
+			scanDefinitions(content, variables);
+		}
+		return variables;
+	}
+
+	/** Collect references of the form <code>@type/name</code>, not adjacent to name characters. */
+	private static void scanReferences(byte[] content, FileVariables variables) {
+		for (int i = 0; i < content.length; ++i) {
+			if (content[i] != '@' || (i > 0 && (isNameChar(content[i - 1]) || content[i - 1] == '.'))) {
+				continue;
+			}
+			int typeStart = i + 1;
+			int index = typeStart;
+			while (index < content.length && content[index] >= 'a' && content[index] <= 'z') {
+				++index;
+			}
+			if (index == typeStart || index == content.length || content[index] != '/') {
+				continue;
+			}
+			int typeEnd = index++;
+			int nameStart = index;
+			while (index < content.length && ((content[index] >= 'a' && content[index] <= 'z') || content[index] == '-')) {
+				++index;
+			}
+			if (index == nameStart || (index < content.length && isNameChar(content[index]))) {
+				continue;
+			}
+			variables.references.add(new Variable(string(content, typeStart, typeEnd), string(content, nameStart, index), i));
+			i = index - 1;
+		}
+	}
+
+	/**
+	 * If XML content is not a descriptor, collect root children tag names offsets. Comments, CDATA sections, processing
+	 * instructions and document type declaration are skipped.
+	 */
+	private static void scanDefinitions(byte[] content, FileVariables variables) {
+		int depth = 0;
+		for (int i = 0; i < content.length; ++i) {
+			if (content[i] != '<' || i + 1 == content.length) {
+				continue;
+			}
+			byte next = content[i + 1];
+			if (next == '!') {
+				i = skipMarkup(content, i);
+				continue;
+			}
+			if (next == '?') {
+				i = skipTo(content, i, "?>");
+				continue;
+			}
+
+			boolean endTag = next == '/';
+			int nameStart = endTag ? i + 2 : i + 1;
+			int nameEnd = nameStart;
+			while (nameEnd < content.length && !isTagNameEnd(content[nameEnd])) {
+				++nameEnd;
+			}
+			int tagEnd = tagEnd(content, nameEnd);
+			if (nameEnd == nameStart) {
+				continue;
+			}
+			String name = string(content, nameStart, nameEnd);
+			boolean selfClosing = tagEnd < content.length && content[tagEnd - 1] == '/';
+
+			if (endTag) {
+				if (depth == 2 && variables.type != null) {
+					variables.definitions.add(new Variable(variables.type, name, nameStart));
+				}
+				--depth;
+			} else {
+				++depth;
+				if (depth == 1) {
+					if (!VARIABLE_TYPES.contains(name)) {
+						return;
+					}
+					variables.type = name;
+				} else if (depth == 2) {
+					variables.definitions.add(new Variable(variables.type, name, nameStart));
+				}
+				if (selfClosing) {
+					--depth;
+				}
+			}
+			i = tagEnd;
+		}
+	}
+
+	/** Return the offset of tag closing mark, taking care of quoted attribute values. */
+	private static int tagEnd(byte[] content, int index) {
+		byte quote = 0;
+		for (; index < content.length; ++index) {
+			byte b = content[index];
+			if (quote != 0) {
+				if (b == quote) {
+					quote = 0;
+				}
+			} else if (b == '"' || b == '\'') {
+				quote = b;
+			} else if (b == '>') {
+				return index;
+			}
+		}
+		return index;
+	}
+
+	private static int skipMarkup(byte[] content, int index) {
+		if (startsWith(content, index, "<!--")) {
+			return skipTo(content, index, "-->");
+		}
+		if (startsWith(content, index, "<![CDATA[")) {
+			return skipTo(content, index, "]]>");
+		}
+		return skipTo(content, index, ">");
+	}
+
+	/** Return the offset of mark last character or content length if mark not found. */
+	private static int skipTo(byte[] content, int index, String mark) {
+		for (; index < content.length; ++index) {
+			if (startsWith(content, index, mark)) {
+				return index + mark.length() - 1;
+			}
+		}
+		return content.length;
+	}
+
+	private static boolean startsWith(byte[] content, int index, String mark) {
+		if (index + mark.length() > content.length) {
+			return false;
+		}
+		for (int i = 0; i < mark.length(); ++i) {
+			if (content[index + i] != mark.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isTagNameEnd(byte b) {
+		return b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\r' || b == '\n';
+	}
+
+	private static boolean isNameChar(byte b) {
+		return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_' || b == '-';
+	}
+
+	private static String string(byte[] content, int start, int end) {
+		return new String(content, start, end - start, StandardCharsets.US_ASCII);
+	}
+
+	private static String extension(String fileName) {
+		int dot = fileName.lastIndexOf('.');
+		return dot != -1 ? fileName.substring(dot + 1) : "";
+	}
+
+	private static String key(String type, String name) {
+		return type + '/' + name;
+	}
+
+	private void updateLookupMaps() {
+		definitions.clear();
+		references.clear();
+		files.forEach((filePath, variables) -> {
+			for (Variable definition : variables.definitions) {
+				definitions.computeIfAbsent(key(definition.type, definition.name), key -> new ArrayList<>()).add(new Occurrence(filePath, definition.offset));
+			}
+			for (Variable reference : variables.references) {
+				references.computeIfAbsent(key(reference.type, reference.name), key -> new ArrayList<>()).add(new Occurrence(filePath, reference.offset));
+			}
+		});
+	}
+
+	private void load() {
+		boolean success = cacheFile.load(stream -> {
+			int filesCount = stream.readInt();
+			for (int i = 0; i < filesCount; ++i) {
+				String filePath = stream.readUTF();
+				FileVariables variables = new FileVariables(stream.readLong(), stream.readLong());
+				variables.type = CacheFile.readString(stream);
+				readVariables(stream, variables.definitions);
+				readVariables(stream, variables.references);
+				files.put(filePath, variables);
+			}
+		});
+		if (!success) {
+			files.clear();
+		}
+		updateLookupMaps();
+	}
+
+	private static void readVariables(DataInputStream stream, List<Variable> variables) throws IOException {
+		int count = stream.readInt();
+		for (int i = 0; i < count; ++i) {
+			variables.add(new Variable(stream.readUTF(), stream.readUTF(), stream.readInt()));
+		}
+	}
+
+	private void save() {
+		cacheFile.save(stream -> {
+			stream.writeInt(files.size());
+			for (Map.Entry<String, FileVariables> entry : files.entrySet()) {
+				FileVariables variables = entry.getValue();
+				stream.writeUTF(entry.getKey());
+				stream.writeLong(variables.size);
+				stream.writeLong(variables.modified);
+				CacheFile.writeString(stream, variables.type);
+				writeVariables(stream, variables.definitions);
+				writeVariables(stream, variables.references);
+			}
+		});
+	}
+
+	private static void writeVariables(DataOutputStream stream, List<Variable> variables) throws IOException {
+		stream.writeInt(variables.size());
+		for (Variable variable : variables) {
+			stream.writeUTF(variable.type);
+			stream.writeUTF(variable.name);
+			stream.writeInt(variable.offset);
+		}
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * Variable occurrence: project relative file path and byte offset.
+	 */
+	public static class Occurrence {
+		private final String file;
+		private final int offset;
+
+		private Occurrence(String file, int offset) {
+			this.file = file;
+			this.offset = offset;
+		}
+
+		/** Project relative file path. */
+		public String getFile() {
+			return file;
+		}
+
+		/** Byte offset from file start. */
+		public int getOffset() {
+			return offset;
+		}
+	}
+
+	/** Variables from a scanned file. */
+	private static class FileVariables {
+		final long size;
+		final long modified;
+		/** Variable type if this file is a variables file, otherwise null. */
+		String type;
+		final List<Variable> definitions = new ArrayList<>();
+		final List<Variable> references = new ArrayList<>();
+
+		FileVariables(long size, long modified) {
+			this.size = size;
+			this.modified = modified;
+		}
+	}
+
+	private static class Variable {
+		final String type;
+		final String name;
+		final int offset;
+
+		Variable(String type, String name, int offset) {
+			this.type = type;
+			this.name = name;
+			this.offset = offset;
+		}
+	}
+}
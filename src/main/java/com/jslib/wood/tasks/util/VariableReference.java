@@ -29,6 +29,17 @@ public class VariableReference implements Converter {
 		this.name = matcher.group(2);
 	}
 
+	/**
+	 * Parse variable reference.
+	 *
+	 * @param value variable reference, e.g. <code>@string/title</code>.
+	 * @return variable reference.
+	 * @throws IllegalArgumentException if value is not a valid variable reference.
+	 */
+	public static VariableReference parse(String value) {
+		return new VariableReference(value);
+	}
+
 	public String value() {
 		return value;
 	}